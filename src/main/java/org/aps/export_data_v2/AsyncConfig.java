@@ -1,25 +1,23 @@
 package org.aps.export_data_v2;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
-    @Bean
-    public Executor asyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(5);
-        executor.setQueueCapacity(2000);
-        executor.setThreadNamePrefix("Async-Excel-");
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.initialize();
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService exportEncodingExecutor(@Value("${app.export.encoding-threads:0}") int encodingThreads) {
+        int threads = encodingThreads > 0 ? encodingThreads : Runtime.getRuntime().availableProcessors();
 
-        return executor;
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("Export-Encode-", 0).factory());
     }
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package org.aps.export_data_v2;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.constant.ExecutionMode;
+import org.aps.export_data_v2.constant.ExportStatus;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.reader.ShardedReadSupport;
+import org.aps.export_data_v2.reader.SnapshotSessionRegistry;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExportBatchDispatcher {
+    private final ExportExcelService exportExcelService;
+    private final ExportJobRepository exportJobRepository;
+    private final ExportBatchRepository exportBatchRepository;
+    private final ExportBatchPlanner exportBatchPlanner;
+    private final SnapshotSessionRegistry snapshotSessionRegistry;
+    private final ExportBatchLeaseManager exportBatchLeaseManager;
+    private final ShardedReadSupport shardedReadSupport;
+
+    @Value("${app.export.dispatcher.max-concurrent-batches:5}")
+    private int MAX_CONCURRENT_BATCHES;
+
+    @Value("${app.export.dispatcher.max-concurrent-batches-per-job:2}")
+    private int MAX_CONCURRENT_BATCHES_PER_JOB;
+
+    @Value("${app.export.dispatcher.execution-mode:PLATFORM}")
+    private ExecutionMode EXECUTION_MODE;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int CONNECTION_POOL_SIZE;
+
+    @Value("${app.export.dispatcher.reserved-connections:10}")
+    private int RESERVED_CONNECTIONS;
+
+    private final Deque<Long> activeJobs = new ArrayDeque<>();
+    private final Map<Long, Integer> runningBatchesPerJob = new HashMap<>();
+    private Semaphore batchPermits;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        int permits;
+        if (EXECUTION_MODE == ExecutionMode.VIRTUAL) {
+            permits = Math.max(1,
+                    CONNECTION_POOL_SIZE - RESERVED_CONNECTIONS - shardedReadSupport.getShardConnections());
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Export-Batch-", 0).factory());
+        } else {
+            permits = MAX_CONCURRENT_BATCHES;
+            executor = Executors.newFixedThreadPool(permits, Thread.ofPlatform().name("Export-Batch-", 0).factory());
+        }
+        batchPermits = new Semaphore(permits);
+        log.info("Export dispatcher running {} batches at a time on {} threads", permits, EXECUTION_MODE);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        int orphaned = exportBatchLeaseManager.releaseOwnLeases();
+        if (orphaned > 0) {
+            log.info("Released {} batches leased by node {} before it restarted", orphaned,
+                    exportBatchLeaseManager.getNodeId());
+        }
+
+        List<ExportJob> unfinishedJobs =
+                exportJobRepository.findStuckJobs(List.of(ExportStatus.PENDING, ExportStatus.IN_PROGRESS));
+        for (ExportJob job : unfinishedJobs) {
+            submit(job.getId());
+        }
+    }
+
+    public void submit(Long jobId) {
+        synchronized (this) {
+            if (!activeJobs.contains(jobId)) {
+                activeJobs.addLast(jobId);
+            }
+        }
+        dispatch();
+    }
+
+    public synchronized boolean isActive(Long jobId) {
+        return activeJobs.contains(jobId);
+    }
+
+    // Leasing and planning hit the database, so a batch slot is reserved under the monitor and claimed outside it.
+    private void dispatch() {
+        int idleRounds = 0;
+        while (true) {
+            Long jobId;
+            synchronized (this) {
+                if (activeJobs.isEmpty() || idleRounds >= activeJobs.size() || !batchPermits.tryAcquire()) {
+                    return;
+                }
+                jobId = activeJobs.pollFirst();
+                activeJobs.addLast(jobId);
+                // Snapshots are held by a single node, which is why CONSISTENT_SNAPSHOT is rejected in cluster mode.
+                int jobLimit = snapshotSessionRegistry.isPinned(jobId) ? 1 : MAX_CONCURRENT_BATCHES_PER_JOB;
+                if (runningBatchesPerJob.getOrDefault(jobId, 0) >= jobLimit) {
+                    batchPermits.release();
+                    idleRounds++;
+                    continue;
+                }
+                runningBatchesPerJob.merge(jobId, 1, Integer::sum);
+            }
+
+            Long batchId;
+            try {
+                batchId = claimNextBatch(jobId);
+            } catch (RuntimeException e) {
+                log.error("Could not claim a batch of export job {}", jobId, e);
+                batchPermits.release();
+                synchronized (this) {
+                    if (decrementRunning(jobId) == 0) {
+                        activeJobs.remove(jobId);
+                    } else {
+                        idleRounds++;
+                    }
+                }
+                continue;
+            }
+            if (batchId != null) {
+                start(jobId, batchId);
+                idleRounds = 0;
+                continue;
+            }
+
+            batchPermits.release();
+            synchronized (this) {
+                if (decrementRunning(jobId) == 0) {
+                    activeJobs.remove(jobId);
+                    runningBatchesPerJob.merge(jobId, 1, Integer::sum);
+                    executor.execute(() -> finishJob(jobId));
+                } else {
+                    idleRounds++;
+                }
+            }
+        }
+    }
+
+    private Long claimNextBatch(Long jobId) {
+        Long batchId = exportBatchLeaseManager.lease(jobId);
+        if (batchId == null) {
+            // An empty plan can also mean another planner got there first, so its batches are worth a second lease.
+            exportBatchPlanner.planNext(jobId, MAX_CONCURRENT_BATCHES_PER_JOB);
+            batchId = exportBatchLeaseManager.lease(jobId);
+        }
+        return batchId;
+    }
+
+    private void start(Long jobId, Long batchId) {
+        executor.execute(() -> {
+            try {
+                ExportBatch batch = exportBatchRepository.findById(batchId)
+                        .orElseThrow(() -> new RuntimeException("Export batch not found"));
+                exportExcelService.processBatch(batch);
+            } catch (Exception e) {
+                log.error("Error running batch {} of job {}", batchId, jobId, e);
+            } finally {
+                exportBatchLeaseManager.release(batchId);
+                release(jobId);
+            }
+        });
+    }
+
+    private void release(Long jobId) {
+        batchPermits.release();
+        redispatch(jobId);
+    }
+
+    private void redispatch(Long jobId) {
+        synchronized (this) {
+            decrementRunning(jobId);
+        }
+        try {
+            dispatch();
+        } catch (Exception e) {
+            log.error("Error dispatching export batches", e);
+        }
+    }
+
+    private int decrementRunning(Long jobId) {
+        Integer running = runningBatchesPerJob.merge(jobId, -1,
+                (count, delta) -> count + delta > 0 ? count + delta : null);
+        return running != null ? running : 0;
+    }
+
+    private void finishJob(Long jobId) {
+        try {
+            exportExcelService.finalizeIfComplete(jobId);
+            ExportJob job = exportJobRepository.findById(jobId).orElse(null);
+            if (job != null && job.getCompletedAt() != null) {
+                log.info("Job {} finished with status {} in {} ms on {} threads", job.getJobUniqueId(),
+                        job.getStatus(), Duration.between(job.getCreatedAt(), job.getCompletedAt()).toMillis(),
+                        EXECUTION_MODE);
+            } else if (snapshotSessionRegistry.isPinned(jobId)) {
+                log.info("Job {} is waiting on failed or leased batches, releasing its snapshot", jobId);
+                snapshotSessionRegistry.release(jobId);
+            }
+        } catch (Exception e) {
+            log.error("Error finishing export job {}", jobId, e);
+        } finally {
+            redispatch(jobId);
+        }
+    }
+}
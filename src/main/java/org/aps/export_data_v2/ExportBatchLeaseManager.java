@@ -0,0 +1,144 @@
+package org.aps.export_data_v2;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExportBatchLeaseManager {
+    private final ExportBatchRepository exportBatchRepository;
+    private final ExportJobRepository exportJobRepository;
+
+    @Value("${app.cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.cluster.lease-seconds:120}")
+    private long LEASE_SECONDS;
+
+    @Value("${app.export.max-retries}")
+    private int MAX_RETRIES;
+
+    @Value("${app.export.retry.backoff-base-seconds:30}")
+    private long BACKOFF_BASE_SECONDS;
+
+    @Value("${app.export.retry.backoff-max-seconds:1800}")
+    private long BACKOFF_MAX_SECONDS;
+
+    private final Map<Long, String> leases = new ConcurrentHashMap<>();
+    private String nodeId;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId.isBlank()
+                ? hostName() + "-" + UUID.randomUUID().toString().substring(0, 8) : configuredNodeId;
+        log.info("Export node {} leasing batches for {} s", nodeId, LEASE_SECONDS);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Transactional
+    public Long lease(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> batchIds = exportBatchRepository.findLeasableBatchIds(jobId, MAX_RETRIES, BACKOFF_BASE_SECONDS,
+                BACKOFF_MAX_SECONDS, now);
+        if (batchIds.isEmpty()) {
+            return null;
+        }
+        Long batchId = batchIds.get(0);
+        String token = UUID.randomUUID().toString();
+        exportBatchRepository.lease(batchId, BatchStatus.IN_PROGRESS, nodeId, token, now, now.plusSeconds(LEASE_SECONDS));
+        leases.put(batchId, token);
+        return batchId;
+    }
+
+    @Transactional
+    public boolean complete(ExportBatch batch) {
+        if (exportBatchRepository.markCompleted(batch.getId(), batch.getLeaseToken(), BatchStatus.COMPLETED,
+                batch.getPartialFilePath(), batch.getFileSize(), batch.getFileCrc32(), batch.getFetchMillis(),
+                batch.getEncodeMillis(), batch.getWriteMillis(), batch.getRowCount(), batch.getDurationMillis(),
+                batch.getRangeFingerprint(), batch.getReusedFromBatchId(), batch.getLastProcessedAt()) == 0) {
+            return false;
+        }
+        exportJobRepository.incrementProcessedBatches(batch.getExportJob().getId());
+        return true;
+    }
+
+    @Transactional
+    public boolean fail(ExportBatch batch, String errorMessage) {
+        if (exportBatchRepository.markFailed(batch.getId(), batch.getLeaseToken(), BatchStatus.FAILED, errorMessage,
+                LocalDateTime.now()) == 0 || batch.getRetryCount() + 1 < MAX_RETRIES) {
+            return false;
+        }
+        exportJobRepository.incrementFailedBatches(batch.getExportJob().getId());
+        return true;
+    }
+
+    // Losing the heartbeat counts as a failed attempt, so the batch waits out the retry backoff and is
+    // given up on, like any other failure, once it has run out of retries.
+    @Transactional
+    public List<ExportBatch> reclaimStale(LocalDateTime staleBefore, LocalDateTime now) {
+        List<ExportBatch> stale = exportBatchRepository.findStaleBatchesForUpdate(BatchStatus.IN_PROGRESS,
+                staleBefore, now);
+        if (stale.isEmpty()) {
+            return stale;
+        }
+        exportBatchRepository.reclaimStaleBatches(stale.stream().map(ExportBatch::getId).toList(),
+                BatchStatus.IN_PROGRESS, BatchStatus.FAILED, "Lease expired without a heartbeat", now);
+        for (ExportBatch batch : stale) {
+            if (batch.getRetryCount() + 1 >= MAX_RETRIES) {
+                exportJobRepository.incrementFailedBatches(batch.getExportJob().getId());
+            }
+        }
+        return stale;
+    }
+
+    public void release(Long batchId) {
+        leases.remove(batchId);
+    }
+
+    public int releaseOwnLeases() {
+        if (configuredNodeId.isBlank()) {
+            return 0;
+        }
+        return exportBatchRepository.releaseLeases(nodeId, BatchStatus.IN_PROGRESS, BatchStatus.PENDING);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cluster.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, String> lease : leases.entrySet()) {
+            if (exportBatchRepository.renewLease(lease.getKey(), lease.getValue(), now, now.plusSeconds(LEASE_SECONDS)) == 0
+                    && leases.remove(lease.getKey(), lease.getValue())) {
+                log.warn("Lost lease on batch {}, another node has taken it over", lease.getKey());
+            }
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.aps.export_data_v2;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.definition.ExportDefinitionRegistry;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.aps.export_data_v2.writer.ExportColumn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExportBatchPlanner {
+    private final ExportDefinitionRegistry exportDefinitionRegistry;
+    private final ExportJobRepository exportJobRepository;
+    private final ExportBatchRepository exportBatchRepository;
+
+    @Value("${app.export.batch-size}")
+    private int BATCH_SIZE;
+
+    @Value("${app.export.adaptive.target-batch-bytes:67108864}")
+    private long TARGET_BATCH_BYTES;
+
+    @Value("${app.export.adaptive.target-batch-seconds:60}")
+    private long TARGET_BATCH_SECONDS;
+
+    @Value("${app.export.adaptive.min-batch-size:10000}")
+    private int MIN_BATCH_SIZE;
+
+    @Value("${app.export.adaptive.max-batch-size:1000000}")
+    private int MAX_BATCH_SIZE;
+
+    @Value("${app.export.adaptive.min-heap-headroom:0.25}")
+    private double MIN_HEAP_HEADROOM;
+
+    @PostConstruct
+    public void seedBatchIds() {
+        exportBatchRepository.seedIdGenerator(ExportBatch.ID_ALLOCATION_SIZE);
+    }
+
+    public void initPlan(ExportJob job, Integer minKey, Integer maxKey, List<? extends ExportColumn<?>> columns) {
+        job.setTotalBatches(0);
+        job.setPlanningComplete(minKey == null || maxKey == null);
+        job.setNextStartKey(minKey != null ? minKey - 1 : null);
+        job.setMaxKey(maxKey);
+        job.setInitialBatchSize(clamp(Math.min(BATCH_SIZE, TARGET_BATCH_BYTES / estimatedRowBytes(columns))));
+    }
+
+    @Transactional
+    public List<Long> planNext(Long jobId, int count) {
+        ExportJob job = exportJobRepository.findByIdForUpdate(jobId)
+                .orElseThrow(() -> new RuntimeException("Export job not found"));
+        if (Boolean.TRUE.equals(job.getPlanningComplete()) || job.getNextStartKey() == null) {
+            return List.of();
+        }
+
+        boolean delta = job.getParameters() != null && job.getParameters().isDelta();
+        int batchSize = nextBatchSize(job);
+        int startKey = job.getNextStartKey();
+        boolean complete = false;
+        List<ExportBatch> batches = new ArrayList<>();
+        while (batches.size() < count && !complete) {
+            Integer endKey = delta ? null : previousEndKey(job, startKey);
+            if (endKey == null) {
+                endKey = findBoundaryKey(job, startKey, batchSize - 1);
+            }
+            if (endKey == null || endKey >= job.getMaxKey()) {
+                endKey = job.getMaxKey();
+                complete = true;
+            }
+
+            batches.add(ExportBatch.builder()
+                    .batchUniqueId(UUID.randomUUID().toString())
+                    .exportJob(job)
+                    .batchNumber(job.getTotalBatches() + batches.size())
+                    .startKey(startKey)
+                    .endKey(endKey)
+                    .plannedRows(batchSize)
+                    .status(BatchStatus.PENDING)
+                    .build());
+            startKey = endKey;
+        }
+        if (exportJobRepository.advancePlan(job.getId(), job.getNextStartKey(), startKey, batches.size(), complete) == 0) {
+            log.debug("Plan of job {} was advanced by another planner, skipping", job.getJobUniqueId());
+            return List.of();
+        }
+        exportBatchRepository.saveAll(batches);
+
+        log.debug("Planned {} batches of {} rows for job {}{}", batches.size(), batchSize, job.getJobUniqueId(),
+                complete ? " (planning complete)" : "");
+        return batches.stream().map(ExportBatch::getId).toList();
+    }
+
+    private Integer findBoundaryKey(ExportJob job, int startKey, int step) {
+        try {
+            return exportDefinitionRegistry.forExportType(job.getExportType()).getReader()
+                    .findBoundaryKey(job, startKey, step);
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not plan export batches", e);
+        }
+    }
+
+    private Integer previousEndKey(ExportJob job, int startKey) {
+        List<Integer> endKeys = exportBatchRepository.findPreviousEndKeys(job.getExportType(), job.getId(), startKey,
+                BatchStatus.COMPLETED, PageRequest.of(0, 1));
+        if (endKeys.isEmpty() || endKeys.get(0) <= startKey || endKeys.get(0) > job.getMaxKey()) {
+            return null;
+        }
+        return endKeys.get(0);
+    }
+
+    private int nextBatchSize(ExportJob job) {
+        int batchSize = job.getInitialBatchSize() != null ? job.getInitialBatchSize() : BATCH_SIZE;
+
+        List<ExportBatch> observed = exportBatchRepository
+                .findTop5ByExportJobIdAndStatusOrderByLastProcessedAtDesc(job.getId(), BatchStatus.COMPLETED);
+        long rows = 0;
+        long millis = 0;
+        long bytes = 0;
+        Integer previousSize = null;
+        for (ExportBatch batch : observed) {
+            if (batch.getRowCount() == null || batch.getDurationMillis() == null) {
+                continue;
+            }
+            rows += batch.getRowCount();
+            millis += batch.getDurationMillis();
+            bytes += batch.getFileSize() != null ? batch.getFileSize() : 0;
+            if (previousSize == null) {
+                previousSize = batch.getPlannedRows() != null ? batch.getPlannedRows() : batchSize;
+            }
+        }
+
+        if (rows > 0) {
+            long rowsForTime = millis > 0 ? rows * TARGET_BATCH_SECONDS * 1000 / millis : MAX_BATCH_SIZE;
+            long rowsForBytes = bytes > 0 ? TARGET_BATCH_BYTES * rows / bytes : MAX_BATCH_SIZE;
+            long target = Math.min(rowsForTime, rowsForBytes);
+            batchSize = (int) Math.max(previousSize / 2, Math.min((long) previousSize * 2, target));
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        double headroom = 1.0 - (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+        if (headroom < MIN_HEAP_HEADROOM) {
+            batchSize = (int) (batchSize * Math.max(headroom, 0) / MIN_HEAP_HEADROOM);
+        }
+
+        return clamp(batchSize);
+    }
+
+    private int clamp(long batchSize) {
+        return (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, batchSize));
+    }
+
+    static long estimatedRowBytes(List<? extends ExportColumn<?>> columns) {
+        long rowBytes = 0;
+        for (ExportColumn<?> column : columns) {
+            rowBytes += switch (column.getType()) {
+                case INTEGER -> 8;
+                case NUMERIC, DATE -> 12;
+                case TEXT -> 32;
+            };
+        }
+        return Math.max(rowBytes, 1);
+    }
+}
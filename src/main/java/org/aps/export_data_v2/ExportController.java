@@ -1,17 +1,26 @@
     package org.aps.export_data_v2;
 
+    import jakarta.servlet.http.HttpServletRequest;
+    import jakarta.servlet.http.HttpServletResponse;
     import lombok.RequiredArgsConstructor;
+    import org.aps.export_data_v2.constant.ExportFormat;
+    import org.aps.export_data_v2.constant.ExportMode;
+    import org.aps.export_data_v2.constant.WorkbookLayout;
+    import org.aps.export_data_v2.definition.ExportDefinition;
+    import org.aps.export_data_v2.definition.ExportDefinitionRegistry;
+    import org.aps.export_data_v2.definition.SalaryExportDefinition;
+    import org.aps.export_data_v2.entity.ExportFilter;
     import org.aps.export_data_v2.entity.ExportJob;
-    import org.springframework.core.io.FileSystemResource;
-    import org.springframework.core.io.Resource;
+    import org.springframework.beans.factory.annotation.Value;
     import org.springframework.http.HttpHeaders;
     import org.springframework.http.MediaType;
     import org.springframework.http.ResponseEntity;
     import org.springframework.web.bind.annotation.*;
+    import org.springframework.web.context.request.async.WebAsyncTask;
 
-    import java.nio.file.Path;
-    import java.nio.file.Paths;
+    import java.io.IOException;
     import java.util.HashMap;
+    import java.util.List;
     import java.util.Map;
 
     @RestController
@@ -20,34 +29,113 @@
     public class ExportController {
 
         private final ExportExcelService exportExcelService;
+        private final ExportDownloadService exportDownloadService;
+        private final ExportBatchDispatcher exportBatchDispatcher;
+        private final ExportResultCache exportResultCache;
+        private final ExportDefinitionRegistry exportDefinitionRegistry;
+        private final ExportStorageManager exportStorageManager;
+        private final ExportJobScheduler exportJobScheduler;
+
+        @Value("${app.export.stream-timeout-ms:21600000}")
+        private long STREAM_TIMEOUT_MS;
 
         @PostMapping("/salaries")
-        public ResponseEntity<?> exportSalaries() {
+        public ResponseEntity<?> exportSalaries(@RequestParam(defaultValue = "EXCEL") ExportFormat format,
+                                                @RequestParam(defaultValue = "FULL") ExportMode mode,
+                                                @RequestParam(defaultValue = "false") boolean merge,
+                                                @ModelAttribute ExportFilter filter,
+                                                @RequestParam(required = false) List<String> columns,
+                                                @RequestParam(defaultValue = "ARCHIVE") WorkbookLayout layout) {
+
+            return export(SalaryExportDefinition.NAME, format, mode, merge, filter, columns, layout);
+        }
+
+        @PostMapping("/definitions/{name}")
+        public ResponseEntity<?> exportDefinition(@PathVariable String name,
+                                                  @RequestParam(defaultValue = "EXCEL") ExportFormat format,
+                                                  @RequestParam(defaultValue = "FULL") ExportMode mode,
+                                                  @RequestParam(defaultValue = "false") boolean merge,
+                                                  @ModelAttribute ExportFilter filter,
+                                                  @RequestParam(required = false) List<String> columns,
+                                                  @RequestParam(defaultValue = "ARCHIVE") WorkbookLayout layout) {
+            return export(name.toUpperCase(), format, mode, merge, filter, columns, layout);
+        }
+
+        @GetMapping("/definitions")
+        public ResponseEntity<?> getDefinitions() {
+            List<Map<String, Object>> definitions = exportDefinitionRegistry.getDefinitions().stream()
+                    .map(this::describe)
+                    .toList();
+            return ResponseEntity.ok(definitions);
+        }
 
-            ExportJob job = exportExcelService.createSalaryExportJob();
-            exportExcelService.processExportJob(job.getJobUniqueId());
+        private ResponseEntity<?> export(String definitionName, ExportFormat format, ExportMode mode, boolean merge,
+                                         ExportFilter filter, List<String> columns, WorkbookLayout layout) {
+            ExportJob job = exportExcelService.createExportJob(definitionName, format, mode, merge, filter, columns,
+                    layout);
+            if (!job.isCacheHit()) {
+                exportBatchDispatcher.submit(job.getId());
+            }
 
             Map<String, Object> response = new HashMap<>();
             response.put("jobId", job.getJobUniqueId());
+            response.put("exportType", job.getExportType());
+            response.put("format", job.resolveExportFormat().toString());
+            response.put("mode", job.getParameters().getExportMode().toString());
             response.put("status", job.getStatus().toString());
             response.put("totalBatches", job.getTotalBatches());
             response.put("totalRecords", job.getTotalRecords());
+            response.put("cacheHit", job.isCacheHit());
 
             return ResponseEntity.ok(response);
         }
 
+        private Map<String, Object> describe(ExportDefinition<?> definition) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("name", definition.getName());
+            response.put("title", definition.getTitle());
+            response.put("keyColumn", definition.getKeyColumn());
+            response.put("columns", List.copyOf(definition.getColumnsByName().keySet()));
+            response.put("formats", definition.getFormats());
+            return response;
+        }
+
+        @GetMapping("/cache/stats")
+        public ResponseEntity<?> getCacheStats() {
+            return ResponseEntity.ok(exportResultCache.stats());
+        }
+
+        @GetMapping("/storage/stats")
+        public ResponseEntity<?> getStorageStats() {
+            return ResponseEntity.ok(exportStorageManager.stats());
+        }
+
+        @GetMapping("/recovery/stats")
+        public ResponseEntity<?> getRecoveryStats() {
+            return ResponseEntity.ok(exportJobScheduler.recoveryStats());
+        }
+
         @GetMapping("/{jobUniqueId}")
         public ResponseEntity<?> getExportStatus(@PathVariable String jobUniqueId) {
             ExportJob job = exportExcelService.getJobStatus(jobUniqueId);
 
             Map<String, Object> response = new HashMap<>();
             response.put("jobId", job.getJobUniqueId());
+            response.put("exportType", job.getExportType());
+            response.put("format", job.resolveExportFormat().toString());
             response.put("status", job.getStatus().toString());
             response.put("totalBatches", job.getTotalBatches());
             response.put("processedBatches", job.getProcessedBatches());
+            response.put("reusedBatches", exportExcelService.getReusedBatches(job));
+            response.put("planningComplete", !Boolean.FALSE.equals(job.getPlanningComplete()));
             response.put("totalRecords", job.getTotalRecords());
+            response.put("parameters", job.getParameters());
             response.put("completed", job.getCompletedAt() != null);
-            if (job.getResultFileUrl() != null) {
+            response.put("evicted", job.getEvictedAt() != null);
+            response.put("storageBytes", job.getCompletedAt() != null && job.getStorageBytes() != null
+                    ? job.getStorageBytes() : exportStorageManager.jobUsage(job.getJobUniqueId()));
+            response.put("stageMillis", exportExcelService.getStageMillis(job));
+            if (job.getResultFileUrl() != null || job.getStorageUrl() != null) {
                 response.put("downloadUrl", "/api/exports/" + job.getJobUniqueId() + "/download");
             }
 
@@ -56,7 +144,8 @@
 
         @PostMapping("/{jobUniqueId}/retry")
         public ResponseEntity<?> retryFailedBatches(@PathVariable String jobUniqueId) {
-            exportExcelService.retryFailedBatches(jobUniqueId);
+            ExportJob job = exportExcelService.getJobStatus(jobUniqueId);
+            exportBatchDispatcher.submit(job.getId());
 
             Map<String, String> response = new HashMap<>();
             response.put("message", "Retry requested for failed batches");
@@ -64,20 +153,28 @@
             return ResponseEntity.accepted().body(response);
         }
 
-        @GetMapping("/{jobUniqueId}/download")
-        public ResponseEntity<Resource> downloadExportFile(@PathVariable String jobUniqueId) {
+        @RequestMapping(value = "/{jobUniqueId}/download", method = {RequestMethod.GET, RequestMethod.HEAD})
+        public void downloadExportFile(@PathVariable String jobUniqueId, HttpServletRequest request,
+                                       HttpServletResponse response) throws IOException {
             ExportJob job = exportExcelService.getJobStatus(jobUniqueId);
 
-            if (job.getResultFileUrl() == null) {
-                return ResponseEntity.notFound().build();
+            if (job.getResultFileUrl() == null && job.getStorageUrl() == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
 
-            Path path = Paths.get(job.getResultFileUrl());
-            Resource resource = new FileSystemResource(path.toFile());
+            exportDownloadService.serveFile(job, request, response);
+        }
+
+        @GetMapping("/{jobUniqueId}/download/stream")
+        public WebAsyncTask<Void> streamExportFile(@PathVariable String jobUniqueId, HttpServletResponse response) {
+            ExportJob job = exportExcelService.getJobStatus(jobUniqueId);
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"export_" + jobUniqueId + ".zip\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"export_" + job.getJobUniqueId() + ".zip\"");
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            return new WebAsyncTask<>(STREAM_TIMEOUT_MS, () -> {
+                exportDownloadService.streamArchive(jobUniqueId, response.getOutputStream());
+                return null;
+            });
         }
     }
\ No newline at end of file
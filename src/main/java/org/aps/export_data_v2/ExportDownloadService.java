@@ -0,0 +1,240 @@
+package org.aps.export_data_v2;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.archive.ExportArchiveAssembler;
+import org.aps.export_data_v2.archive.ZipArchiveWriter;
+import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.constant.ExportStatus;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.aps.export_data_v2.storage.StorageSink;
+import org.aps.export_data_v2.storage.StoredObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportDownloadService {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final Set<ExportStatus> FINISHED_STATUSES =
+            EnumSet.of(ExportStatus.COMPLETED, ExportStatus.PARTIALLY_COMPLETED, ExportStatus.FAILED);
+
+    private final ExportJobRepository exportJobRepository;
+    private final ExportBatchRepository exportBatchRepository;
+    private final StorageSink storageSink;
+
+    @Value("${app.export.stream-poll-interval-ms:1000}")
+    private long STREAM_POLL_INTERVAL_MS;
+
+    @Value("${app.storage.download-redirect:false}")
+    private boolean DOWNLOAD_REDIRECT;
+
+    public void serveFile(ExportJob job, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = job.getResultFileUrl() != null ? Paths.get(job.getResultFileUrl()) : null;
+        if ((path == null || !Files.isRegularFile(path)) && job.getStorageUrl() != null) {
+            path = storageSink.localPath(job.getStorageUrl());
+            if (path == null) {
+                serveStoredFile(job, request, response);
+                return;
+            }
+        }
+        if (path == null || !Files.isRegularFile(path)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        exportJobRepository.touch(job.getId(), LocalDateTime.now());
+
+        long length = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String etag = "\"" + job.getJobUniqueId() + "-" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + downloadFileName(job, path.getFileName().toString()) + "\"");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(etag))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        List<HttpRange> ranges = rangeHeader != null && length > 0
+                && rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)
+                ? parseRanges(rangeHeader) : List.of();
+        if (ranges.size() == 1) {
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+            if (start >= length || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long transferred = 0;
+            while (transferred < count) {
+                long written = channel.transferTo(start + transferred, count - transferred, out);
+                if (written <= 0) {
+                    break;
+                }
+                transferred += written;
+            }
+        }
+    }
+
+    private void serveStoredFile(ExportJob job, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        exportJobRepository.touch(job.getId(), LocalDateTime.now());
+        String storageUrl = job.getStorageUrl();
+        String fileName = downloadFileName(job, storageUrl.substring(storageUrl.lastIndexOf('/') + 1));
+        if (DOWNLOAD_REDIRECT) {
+            URI location = storageSink.downloadUri(storageUrl, fileName);
+            if (location != null) {
+                response.sendRedirect(location.toString());
+                return;
+            }
+        }
+
+        try (StoredObject object = storageSink.open(storageUrl)) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            if (object.length() >= 0) {
+                response.setContentLengthLong(object.length());
+            }
+            if (!"HEAD".equals(request.getMethod())) {
+                object.content().transferTo(response.getOutputStream());
+            }
+        }
+    }
+
+    private static String downloadFileName(ExportJob job, String storedName) {
+        String extension = storedName.endsWith(".zip") ? "zip" : job.resolveExportFormat().getFileExtension();
+        return "export_" + job.getJobUniqueId() + "." + extension;
+    }
+
+    public void streamArchive(String jobUniqueId, OutputStream outputStream) throws IOException {
+        ExportJob job = exportJobRepository.findByJobUniqueId(jobUniqueId)
+                .orElseThrow(() -> new RuntimeException("Export job not found"));
+        Set<Integer> written = new HashSet<>();
+
+        // The central directory is only written once every batch made it in. On failure the response is aborted
+        // rather than closed, so the client cannot mistake a truncated archive for a complete one.
+        ZipArchiveWriter writer = new ZipArchiveWriter(Channels.newChannel(outputStream));
+        while (true) {
+            boolean finished = FINISHED_STATUSES.contains(job.getStatus());
+            List<ExportBatch> completedBatches = exportBatchRepository
+                    .findByExportJobIdAndStatusOrderByBatchNumber(job.getId(), BatchStatus.COMPLETED);
+            List<Integer> unwritable = new ArrayList<>();
+            for (ExportBatch batch : completedBatches) {
+                if (written.contains(batch.getBatchNumber())) {
+                    continue;
+                }
+                if (ExportArchiveAssembler.addBatch(writer, job.resolveExportFormat(), batch)
+                        || ExportArchiveAssembler.addArchivedBatch(writer, batch)) {
+                    written.add(batch.getBatchNumber());
+                    outputStream.flush();
+                } else {
+                    unwritable.add(batch.getBatchNumber());
+                }
+            }
+            if (finished) {
+                if (!unwritable.isEmpty()) {
+                    throw new IOException("Batches " + unwritable + " of export " + jobUniqueId + " have no file");
+                }
+                break;
+            }
+
+            try {
+                Thread.sleep(STREAM_POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while streaming export " + jobUniqueId, e);
+            }
+            job = exportJobRepository.findByJobUniqueId(jobUniqueId).orElse(job);
+        }
+        writer.close();
+        log.info("Streamed {} batch files of job {}", written.size(), jobUniqueId);
+    }
+
+    // A malformed Range header is ignored and the full file is served, as RFC 9110 requires
+    private static List<HttpRange> parseRanges(String rangeHeader) {
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    private boolean rangeApplies(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            // RFC 9110 only honours an If-Range date that matches Last-Modified exactly, at its one-second precision
+            long ifRangeSeconds = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return ifRangeSeconds == TimeUnit.MILLISECONDS.toSeconds(lastModified);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -1,192 +1,409 @@
 package org.aps.export_data_v2;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.aps.export_data_v2.archive.DeltaSnapshotMerger;
+import org.aps.export_data_v2.archive.ExportArchiveAssembler;
+import org.aps.export_data_v2.archive.XlsxWorkbookMerger;
 import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.constant.ExportMode;
 import org.aps.export_data_v2.constant.ExportStatus;
+import org.aps.export_data_v2.constant.SnapshotMode;
+import org.aps.export_data_v2.constant.WorkbookLayout;
+import org.aps.export_data_v2.definition.ExportDefinition;
+import org.aps.export_data_v2.definition.ExportDefinitionRegistry;
+import org.aps.export_data_v2.entity.ArchivePart;
 import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportFilter;
 import org.aps.export_data_v2.entity.ExportJob;
-import org.aps.export_data_v2.entity.Salary;
+import org.aps.export_data_v2.entity.ExportJobParameters;
+import org.aps.export_data_v2.pipeline.BatchPipeline;
+import org.aps.export_data_v2.pipeline.ChunkedOutputStream;
+import org.aps.export_data_v2.pipeline.StageTimings;
+import org.aps.export_data_v2.reader.ExportRowReader;
+import org.aps.export_data_v2.reader.KeyBounds;
+import org.aps.export_data_v2.reader.RowCursor;
+import org.aps.export_data_v2.reader.SnapshotSession;
+import org.aps.export_data_v2.reader.SnapshotSessionRegistry;
 import org.aps.export_data_v2.repository.ExportBatchRepository;
 import org.aps.export_data_v2.repository.ExportJobRepository;
-import org.aps.export_data_v2.repository.SalaryRepository;
+import org.aps.export_data_v2.storage.StorageSink;
+import org.aps.export_data_v2.writer.BatchFileWriter;
+import org.aps.export_data_v2.writer.BatchFileWriterFactory;
+import org.aps.export_data_v2.writer.ExportColumn;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 @EnableAsync
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExportExcelService {
-    private final SalaryRepository salaryRepository;
     private final ExportJobRepository exportJobRepository;
     private final ExportBatchRepository exportBatchRepository;
-    private final Executor asyncExecutor;
-
-    @Value("${app.export.batch-size}")
-    private int BATCH_SIZE;
-
-    @Value("${app.export.max-retries}")
-    private int MAX_RETRIES;
+    private final ExportDefinitionRegistry exportDefinitionRegistry;
+    private final BatchFileWriterFactory batchFileWriterFactory;
+    private final ExportArchiveAssembler exportArchiveAssembler;
+    private final ExportBatchPlanner exportBatchPlanner;
+    private final SnapshotSessionRegistry snapshotSessionRegistry;
+    private final ExecutorService exportEncodingExecutor;
+    private final DeltaSnapshotMerger deltaSnapshotMerger;
+    private final XlsxWorkbookMerger xlsxWorkbookMerger;
+    private final ExportResultCache exportResultCache;
+    private final ExportStorageManager exportStorageManager;
+    private final StorageSink storageSink;
+    private final ExportBatchLeaseManager exportBatchLeaseManager;
+
+    @Value("${app.export.snapshot-mode:HIGH_WATER_MARK}")
+    private SnapshotMode SNAPSHOT_MODE;
+
+    @Value("${app.export.pipeline.chunk-size:4096}")
+    private int PIPELINE_CHUNK_SIZE;
+
+    @Value("${app.export.pipeline.depth:4}")
+    private int PIPELINE_DEPTH;
+
+    @Value("${app.export.pipeline.buffer-size:262144}")
+    private int PIPELINE_BUFFER_SIZE;
 
     @Value("${app.storage.base-path:/tmp/exports}")
     private String basePath;
 
-    public ExportJob createSalaryExportJob() {
-        long totalRecords = salaryRepository.count();
-        int totalBatches = (int) Math.ceil((double) totalRecords / BATCH_SIZE);
-
-        ExportJob job = ExportJob.builder()
-                .jobUniqueId(UUID.randomUUID().toString())
-                .requestedBy("User")
-                .exportType("SALARY_EXCEL")
-                .totalBatches(totalBatches)
-                .totalRecords((int) totalRecords)
-                .build();
-        job = exportJobRepository.save(job);
-
-        createJobDirectory(job.getJobUniqueId());
-
-        List<ExportBatch> batches = new ArrayList<>();
-        for (int i = 0; i < totalBatches; i++) {
-            ExportBatch batch = ExportBatch.builder()
-                    .batchUniqueId(UUID.randomUUID().toString())
-                    .exportJob(job)
-                    .batchNumber(i)
-                    .startOffset(i*BATCH_SIZE)
-                    .status(BatchStatus.PENDING)
-                    .endOffset(Math.min((i + 1) * BATCH_SIZE, (int) totalRecords))
-                    .build();
+    @Value("${app.cluster.enabled:false}")
+    private boolean CLUSTER_ENABLED;
 
-            batches.add(batch);
-        }
-        exportBatchRepository.saveAll(batches);
-
-        for (ExportBatch batch : batches) {
-            CompletableFuture.runAsync(() -> {
-                processBatch(batch);
-            }, asyncExecutor);
+    @PostConstruct
+    public void checkSnapshotMode() {
+        if (CLUSTER_ENABLED && SNAPSHOT_MODE == SnapshotMode.CONSISTENT_SNAPSHOT) {
+            throw new IllegalStateException("app.export.snapshot-mode=CONSISTENT_SNAPSHOT pins each job to the node "
+                    + "holding its snapshot and cannot be used with app.cluster.enabled=true");
         }
+    }
 
-        return exportJobRepository.save(job);
+    public ExportJob createExportJob(String definitionName, ExportFormat format, ExportMode mode,
+                                     boolean mergeWithBase, ExportFilter filter, List<String> columns,
+                                     WorkbookLayout layout) {
+        return createExportJob(exportDefinitionRegistry.get(definitionName), format, mode, mergeWithBase, filter,
+                columns, layout);
     }
 
-    @Async
-    public void processExportJob(String jobUniqueId) {
-        ExportJob job = exportJobRepository.findByJobUniqueId(jobUniqueId)
-                .orElseThrow(() -> new RuntimeException("Export job not found"));
+    private <R> ExportJob createExportJob(ExportDefinition<R> definition, ExportFormat format, ExportMode mode,
+                                          boolean mergeWithBase, ExportFilter filter, List<String> columns,
+                                          WorkbookLayout layout) {
+        if (!definition.getFormats().contains(format)) {
+            throw new RuntimeException("Export format " + format + " is not supported for " + definition.getName());
+        }
+        if (layout == WorkbookLayout.SINGLE_WORKBOOK && format != ExportFormat.EXCEL) {
+            throw new RuntimeException("Single workbook layout is only supported for Excel exports");
+        }
+        ExportFilter exportFilter = filter != null && !filter.isEmpty() ? filter : null;
+        if (!definition.supportsFilter(exportFilter)) {
+            throw new RuntimeException("Only key range filters are supported for " + definition.getName());
+        }
+        List<ExportColumn<R>> exportColumns = definition.columns(columns);
+        if (mergeWithBase && !DeltaSnapshotMerger.supports(format)) {
+            throw new RuntimeException("Merged snapshots are only supported for CSV exports");
+        }
+        if (mergeWithBase && exportColumns.get(0) != definition.getColumnsByName().get(definition.getKeyColumn())) {
+            throw new RuntimeException("Merged snapshots require " + definition.getKeyColumn() + " as the first column");
+        }
+        List<String> exportColumnNames = columns != null && !columns.isEmpty() ? List.copyOf(columns) : null;
+
+        ExportRowReader<R> reader = definition.getReader();
+        String exportType = definition.exportType(format);
+        ExportJob baseJob = mode == ExportMode.DELTA
+                ? findBaseJob(exportType, exportFilter, exportColumnNames, mergeWithBase) : null;
+        if (mode == ExportMode.DELTA && baseJob == null) {
+            log.info("No completed {} export to continue from, running a full export instead", exportType);
+        }
 
+        SnapshotSession session = null;
         try {
-            List<ExportBatch> pendingBatches =
-                    exportBatchRepository.findByExportJobIdAndStatus(job.getId(), BatchStatus.PENDING);
-            for (ExportBatch batch : pendingBatches) {
-                processBatch(batch);
+            session = snapshotSessionRegistry.begin();
+            ExportJobParameters parameters = ExportJobParameters.builder()
+                    .snapshotMode(SNAPSHOT_MODE)
+                    .snapshotAt(session.getStartedAt())
+                    .exportMode(ExportMode.FULL)
+                    .filter(exportFilter)
+                    .columns(exportColumnNames)
+                    .workbookLayout(layout == WorkbookLayout.SINGLE_WORKBOOK ? layout : null)
+                    .build();
+            if (baseJob != null) {
+                parameters.setExportMode(ExportMode.DELTA);
+                parameters.setBaseJobUniqueId(baseJob.getJobUniqueId());
+                parameters.setSinceKey(baseJob.getParameters().getHighWaterKey());
+                parameters.setSinceDate(baseJob.getParameters().getSnapshotAt().toLocalDate());
+                parameters.setMergeWithBase(mergeWithBase);
             }
-            updateJobStatus(job.getId());
 
-        } catch (Exception e) {
-            log.error("Error processing export job: {}", jobUniqueId, e);
+            // Delta bounds only cover changed rows, and those include every key past the base job's high-water mark
+            KeyBounds bounds = reader.readBounds(session, parameters);
+            ExportJobParameters base = baseJob != null ? baseJob.getParameters() : null;
+            parameters.setLowWaterKey(combine(bounds.minKey(), base != null ? base.getLowWaterKey() : null, Math::min));
+            parameters.setHighWaterKey(combine(bounds.maxKey(), parameters.getSinceKey(), Math::max));
+            parameters.setSnapshotRecords(bounds.rowCount());
+
+            String cacheKey = ExportResultCache.cacheKey(exportType, parameters, bounds);
+            synchronized (exportResultCache.lockFor(cacheKey)) {
+                ExportJob cached = exportResultCache.lookup(cacheKey);
+                if (cached != null) {
+                    return cached;
+                }
+
+                String jobUniqueId = UUID.randomUUID().toString();
+                long estimatedBytes = bounds.rowCount() * ExportBatchPlanner.estimatedRowBytes(exportColumns);
+                exportStorageManager.reserve(jobUniqueId, estimatedBytes);
+                ExportJob job = ExportJob.builder()
+                        .jobUniqueId(jobUniqueId)
+                        .requestedBy("User")
+                        .exportType(exportType)
+                        .exportFormat(format)
+                        .parameters(parameters)
+                        .cacheKey(cacheKey)
+                        .totalRecords((int) bounds.rowCount())
+                        .reservedBytes(estimatedBytes)
+                        .build();
+                try {
+                    exportBatchPlanner.initPlan(job, bounds.minKey(), bounds.maxKey(), exportColumns);
+                    job = exportJobRepository.save(job);
+
+                    createJobDirectory(job.getJobUniqueId());
+                } catch (RuntimeException e) {
+                    exportStorageManager.release(jobUniqueId);
+                    throw e;
+                }
+
+                if (SNAPSHOT_MODE == SnapshotMode.CONSISTENT_SNAPSHOT) {
+                    snapshotSessionRegistry.register(job.getId(), session);
+                    session = null;
+                }
+                return job;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not read export snapshot", e);
+        } finally {
+            if (session != null) {
+                snapshotSessionRegistry.close(session);
+            }
         }
     }
 
+    private static Integer combine(Integer key, Integer other, BinaryOperator<Integer> pick) {
+        return key == null ? other : other == null ? key : pick.apply(key, other);
+    }
+
     public void processBatch(ExportBatch batch) {
+        ExportJob job = batch.getExportJob();
         try {
-            batch.setStatus(BatchStatus.IN_PROGRESS);
-            batch.setLastProcessedAt(LocalDateTime.now());
-            exportBatchRepository.save(batch);
-
-            SXSSFWorkbook workbook = new SXSSFWorkbook(100000);
-            ExportExcelUtil.createHeaderRow(workbook);
-
-            int offset = batch.getStartOffset();
-            int limit = batch.getEndOffset() - batch.getStartOffset();
-            List<Salary> salaries = salaryRepository.findAllByOffsetRange(offset, limit);
-
-            ExportExcelUtil.writeUserDataBatch(workbook, salaries, 2);
-            String batchFilePath = saveBatchToFile(batch.getExportJob().getJobUniqueId(), batch.getBatchNumber(), workbook);
+            String batchFilePath = saveBatchToFile(batch);
             batch.setPartialFilePath(batchFilePath);
+            exportStorageManager.recordWrite(job.getJobUniqueId(), batch.getFileSize());
             batch.setStatus(BatchStatus.COMPLETED);
             batch.setLastProcessedAt(LocalDateTime.now());
-            exportBatchRepository.save(batch);
+            if (!exportBatchLeaseManager.complete(batch)) {
+                log.warn("Lease on batch {} expired before it finished, leaving it to the node that took it over",
+                        batch.getBatchUniqueId());
+                return;
+            }
 
-            ExportJob job = batch.getExportJob();
-            job.setProcessedBatches(job.getProcessedBatches() + 1);
-            exportJobRepository.save(job);
+            if (job.getParameters() == null || !job.getParameters().isSingleWorkbook()) {
+                if (!CLUSTER_ENABLED) {
+                    appendToArchive(job, batch);
+                }
+                uploadToSink(job, batch);
+            }
 
         } catch (Exception e) {
             log.error("Error processing batch: {}", batch.getBatchUniqueId(), e);
-            batch.setStatus(BatchStatus.FAILED);
-            batch.setErrorMessage(e.getMessage());
-            batch.setRetryCount(batch.getRetryCount() + 1);
-            batch.setLastProcessedAt(LocalDateTime.now());
-            exportBatchRepository.save(batch);
+            if (!exportBatchLeaseManager.fail(batch, e.getMessage())) {
+                return;
+            }
         }
+
+        finalizeIfComplete(job.getId());
     }
 
-    private String saveBatchToFile(String jobId, int batchNumber, SXSSFWorkbook workbook) throws IOException {
-        String batchFileName = jobId + "_batch_" + batchNumber + ".xlsx";
+    private void logBatchThroughput(ExportBatch batch, int rowCount, long elapsedNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        long rowsPerSecond = elapsedNanos == 0 ? 0 : rowCount * 1_000_000_000L / elapsedNanos;
+        log.debug("Batch {} wrote {} rows in {} ms ({} rows/s; fetch {} ms, encode {} ms, write {} ms)",
+                batch.getBatchUniqueId(), rowCount, elapsedMillis, rowsPerSecond,
+                batch.getFetchMillis(), batch.getEncodeMillis(), batch.getWriteMillis());
+    }
+
+    private String saveBatchToFile(ExportBatch batch) throws IOException, SQLException {
+        ExportJob job = batch.getExportJob();
+        return saveBatchToFile(batch, exportDefinitionRegistry.forExportType(job.getExportType()));
+    }
+
+    private <R> String saveBatchToFile(ExportBatch batch, ExportDefinition<R> definition)
+            throws IOException, SQLException {
+        ExportJob job = batch.getExportJob();
+        ExportRowReader<R> reader = definition.getReader();
+        String jobId = job.getJobUniqueId();
+        ExportFormat format = job.resolveExportFormat();
+        String batchFileName = jobId + "_batch_" + batch.getBatchNumber() + "." + format.getFileExtension();
         String batchFilePath = basePath + File.separator + jobId + File.separator + batchFileName;
 
-        try (FileOutputStream fileOut = new FileOutputStream(batchFilePath)) {
-            workbook.write(fileOut);
-            workbook.dispose();
+        Path batchFile = Paths.get(batchFilePath);
+        Files.createDirectories(batchFile.getParent());
+        Files.deleteIfExists(batchFile);
+        batch.setRangeFingerprint(reader.readFingerprint(batch));
+        if (reusePreviousBatchFile(batch, batchFile)) {
+            return batchFilePath;
+        }
+
+        long startNanos = System.nanoTime();
+        int rowCount;
+        CRC32 crc = new CRC32();
+        StageTimings timings = new StageTimings();
+        BatchPipeline<R> pipeline = new BatchPipeline<>(reader::newRow,
+                PIPELINE_CHUNK_SIZE, PIPELINE_DEPTH, exportEncodingExecutor);
+        try (RowCursor<R> cursor = reader.open(batch);
+             ChunkedOutputStream out = new ChunkedOutputStream(
+                     new CheckedOutputStream(Files.newOutputStream(batchFile), crc),
+                     PIPELINE_BUFFER_SIZE, PIPELINE_DEPTH, timings)) {
+            BatchFileWriter<R> writer = batchFileWriterFactory.open(job.getExportType(), format, out,
+                    definition.getTitle(), definition.columns(
+                            job.getParameters() != null ? job.getParameters().getColumns() : null));
+            rowCount = pipeline.run(cursor, writer, timings);
         }
+        batch.setFileSize(Files.size(batchFile));
+        batch.setFileCrc32(crc.getValue());
+        batch.setFetchMillis(timings.getFetchMillis());
+        batch.setEncodeMillis(timings.getEncodeMillis());
+        batch.setWriteMillis(timings.getWriteMillis());
+        batch.setRowCount(rowCount);
+        batch.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        logBatchThroughput(batch, rowCount, System.nanoTime() - startNanos);
 
         return batchFilePath;
     }
 
-    public void updateJobStatus(Long jobId) {
-        ExportJob job = exportJobRepository.findById(jobId)
-                .orElseThrow(() -> new RuntimeException("Export job not found"));
-
-        int completedBatches = exportBatchRepository.countBatchesByJobIdAndStatus(jobId, BatchStatus.COMPLETED);
-        int failedBatches = exportBatchRepository.countBatchesByJobIdAndStatus(jobId, BatchStatus.FAILED);
+    private boolean reusePreviousBatchFile(ExportBatch batch, Path batchFile) {
+        if (batch.getRangeFingerprint() == null) {
+            return false;
+        }
 
-        if (completedBatches + failedBatches == job.getTotalBatches()) {
-            if (failedBatches == 0) {
-                job.setStatus(ExportStatus.COMPLETED);
-                job.setCompletedAt(LocalDateTime.now());
-                try {
-                    String finalFilePath = combineExcelFiles(job);
-                    job.setResultFileUrl(finalFilePath);
-                } catch (Exception e) {
-                    log.error("Error combining Excel files for job: {}", job.getJobUniqueId(), e);
-                    job.setStatus(ExportStatus.FAILED);
-                }
-            } else if (completedBatches > 0) {
-                job.setStatus(ExportStatus.PARTIALLY_COMPLETED);
-                job.setCompletedAt(LocalDateTime.now());
-                try {
-                    String finalFilePath = combineExcelFiles(job);
-                    job.setResultFileUrl(finalFilePath);
-                } catch (Exception e) {
-                    log.error("Error combining Excel files for job: {}", job.getJobUniqueId(), e);
+        ExportJob job = batch.getExportJob();
+        List<ExportBatch> candidates = exportBatchRepository.findReusableBatches(job.getExportType(), job.getId(),
+                batch.getStartKey(), batch.getEndKey(), batch.getRangeFingerprint(), BatchStatus.COMPLETED,
+                PageRequest.of(0, 5));
+        for (ExportBatch previous : candidates) {
+            if (previous.getPartialFilePath() == null || previous.getFileSize() == null) {
+                continue;
+            }
+            Path source = Paths.get(previous.getPartialFilePath());
+            try {
+                if (Files.isRegularFile(source)) {
+                    if (Files.size(source) != previous.getFileSize()) {
+                        continue;
+                    }
+                    try {
+                        Files.createLink(batchFile, source);
+                    } catch (IOException | UnsupportedOperationException e) {
+                        Files.copy(source, batchFile, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } else if (!ExportArchiveAssembler.extractBatch(previous, batchFile)
+                        || Files.size(batchFile) != previous.getFileSize()) {
+                    Files.deleteIfExists(batchFile);
+                    continue;
                 }
-            } else {
-                job.setStatus(ExportStatus.FAILED);
-                job.setCompletedAt(LocalDateTime.now());
+            } catch (IOException e) {
+                log.warn("Could not reuse batch file {} for batch {}", source, batch.getBatchUniqueId(), e);
+                continue;
             }
 
-            exportJobRepository.save(job);
+            batch.setFileSize(previous.getFileSize());
+            batch.setFileCrc32(previous.getFileCrc32());
+            batch.setRowCount(previous.getRowCount());
+            batch.setFetchMillis(0L);
+            batch.setEncodeMillis(0L);
+            batch.setWriteMillis(0L);
+            batch.setDurationMillis(null);
+            batch.setReusedFromBatchId(previous.getId());
+            log.debug("Batch {} reused unchanged range ({}, {}] from batch {}", batch.getBatchUniqueId(),
+                    batch.getStartKey(), batch.getEndKey(), previous.getBatchUniqueId());
+            return true;
+        }
+        return false;
+    }
+
+    public void finalizeIfComplete(Long jobId) {
+        if (exportJobRepository.markCompleted(jobId, LocalDateTime.now()) == 0) {
+            return;
         }
+        snapshotSessionRegistry.release(jobId);
+
+        ExportJob job = exportJobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Export job not found"));
+        int completedBatches = job.getProcessedBatches();
+        int failedBatches = job.getFailedBatches() != null ? job.getFailedBatches() : 0;
+
+        if (failedBatches == 0) {
+            job.setStatus(ExportStatus.COMPLETED);
+            try {
+                String finalFilePath = combineExcelFiles(job);
+                job.setResultFileUrl(finalFilePath);
+            } catch (Exception e) {
+                log.error("Error combining Excel files for job: {}", job.getJobUniqueId(), e);
+                job.setStatus(ExportStatus.FAILED);
+            }
+        } else if (completedBatches > 0) {
+            job.setStatus(ExportStatus.PARTIALLY_COMPLETED);
+            try {
+                String finalFilePath = combineExcelFiles(job);
+                job.setResultFileUrl(finalFilePath);
+            } catch (Exception e) {
+                log.error("Error combining Excel files for job: {}", job.getJobUniqueId(), e);
+            }
+        } else {
+            job.setStatus(ExportStatus.FAILED);
+        }
+
+        exportStorageManager.release(job.getJobUniqueId());
+        job.setReservedBytes(null);
+        job.setStorageBytes(exportStorageManager.refreshJobUsage(job.getJobUniqueId()));
+        exportJobRepository.save(job);
+    }
+
+    private ExportJob findBaseJob(String exportType, ExportFilter filter, List<String> columns,
+                                  boolean fullSnapshotRequired) {
+        List<ExportJob> completedJobs = exportJobRepository.findByExportTypeAndStatusOrderByCompletedAtDesc(
+                exportType, ExportStatus.COMPLETED, PageRequest.of(0, 20));
+        return completedJobs.stream()
+                .filter(job -> job.getParameters() != null && job.getParameters().hasWatermark())
+                .filter(job -> Objects.equals(job.getParameters().getFilter(), filter)
+                        && Objects.equals(job.getParameters().getColumns(), columns))
+                .filter(job -> !fullSnapshotRequired || (job.getParameters().containsFullSnapshot()
+                        && job.getResultFileUrl() != null && Files.isRegularFile(Paths.get(job.getResultFileUrl()))))
+                .findFirst()
+                .orElse(null);
     }
 
     private String combineExcelFiles(ExportJob job) throws IOException {
@@ -194,30 +411,66 @@ public class ExportExcelService {
                 job.getId(),
                 BatchStatus.COMPLETED
         );
+        completedBatches.sort(Comparator.comparing(ExportBatch::getBatchNumber));
+
+        ExportJobParameters parameters = job.getParameters();
+        String resultFilePath;
+        if (parameters != null && parameters.isSingleWorkbook()) {
+            String title = exportDefinitionRegistry.forExportType(job.getExportType()).getTitle();
+            resultFilePath = xlsxWorkbookMerger.merge(job, completedBatches, title).toString();
+        } else {
+            if (job.getStatus() == ExportStatus.COMPLETED && parameters != null && parameters.isDelta()
+                    && Boolean.TRUE.equals(parameters.getMergeWithBase())) {
+                completedBatches.add(mergeWithBaseSnapshot(job, completedBatches));
+            }
+            resultFilePath = exportArchiveAssembler.finish(job, completedBatches);
+        }
 
-        return ExportExcelUtil.zipExcelFiles(completedBatches, job.getJobUniqueId(), basePath);
+        job.setStorageUrl(publishToSink(job, Paths.get(resultFilePath), completedBatches));
+        exportStorageManager.deleteBatchFiles(completedBatches);
+        return resultFilePath;
     }
 
-    @Async
-    public void retryFailedBatches(String jobUniqueId) {
-        ExportJob job = exportJobRepository.findByJobUniqueId(jobUniqueId)
-                .orElseThrow(() -> new RuntimeException("Export job not found"));
+    private ExportBatch mergeWithBaseSnapshot(ExportJob job, List<ExportBatch> deltaBatches) throws IOException {
+        ExportJob baseJob = exportJobRepository.findByJobUniqueId(job.getParameters().getBaseJobUniqueId())
+                .orElseThrow(() -> new RuntimeException("Base export job not found"));
+        Path snapshot = deltaSnapshotMerger.merge(job, baseJob, deltaBatches);
+        job.getParameters().setSnapshotEntry(snapshot.getFileName().toString());
 
-        List<BatchStatus> listStatus = new ArrayList<>();
-        listStatus.add(BatchStatus.FAILED);
-        listStatus.add(BatchStatus.PENDING);
-        listStatus.add(BatchStatus.IN_PROGRESS);
+        return ExportBatch.builder()
+                .exportJob(job)
+                .batchNumber(job.getTotalBatches())
+                .partialFilePath(snapshot.toString())
+                .build();
+    }
 
-        List<ExportBatch> failedBatches =
-                exportBatchRepository.findBatchesForRetry(job.getId(), listStatus, MAX_RETRIES);
+    private void appendToArchive(ExportJob job, ExportBatch batch) {
+        try {
+            exportArchiveAssembler.append(job, batch);
+        } catch (Exception e) {
+            log.warn("Could not append batch {} to archive, it will be added on completion", batch.getBatchUniqueId(), e);
+        }
+    }
 
-        for (ExportBatch batch : failedBatches) {
-                CompletableFuture.runAsync(() -> {
-                    processBatch(batch);
-                }, asyncExecutor);
+    private void uploadToSink(ExportJob job, ExportBatch batch) {
+        try {
+            ArchivePart part = storageSink.uploadBatch(job, batch);
+            if (part != null) {
+                batch.setArchivePart(part);
+                exportBatchRepository.updateArchivePart(batch.getId(), part);
+            }
+        } catch (Exception e) {
+            log.warn("Could not upload batch {} to storage, it will be uploaded on completion", batch.getBatchUniqueId(), e);
         }
+    }
 
-        updateJobStatus(job.getId());
+    private String publishToSink(ExportJob job, Path result, List<ExportBatch> batches) {
+        try {
+            return storageSink.publish(job, result, batches);
+        } catch (Exception e) {
+            log.warn("Could not publish result of job {}, it is only available on this node", job.getJobUniqueId(), e);
+            return null;
+        }
     }
 
     public ExportJob getJobStatus(String jobUniqueId) {
@@ -225,6 +478,20 @@ public class ExportExcelService {
                 .orElseThrow(() -> new RuntimeException("Export job not found"));
     }
 
+    public Map<String, Long> getStageMillis(ExportJob job) {
+        Object[] sums = exportBatchRepository.sumStageMillisByJobIdAndStatus(job.getId(), BatchStatus.COMPLETED).get(0);
+
+        Map<String, Long> stageMillis = new LinkedHashMap<>();
+        stageMillis.put("fetch", ((Number) sums[0]).longValue());
+        stageMillis.put("encode", ((Number) sums[1]).longValue());
+        stageMillis.put("write", ((Number) sums[2]).longValue());
+        return stageMillis;
+    }
+
+    public long getReusedBatches(ExportJob job) {
+        return exportBatchRepository.countByExportJobIdAndReusedFromBatchIdIsNotNull(job.getId());
+    }
+
     private void createJobDirectory(String jobUniqueId) {
         try {
             Path directory = Paths.get(basePath, jobUniqueId);
@@ -3,15 +3,22 @@ package org.aps.export_data_v2;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aps.export_data_v2.constant.ExportStatus;
+import org.aps.export_data_v2.entity.ExportBatch;
 import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
 import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @RequiredArgsConstructor
@@ -20,22 +27,92 @@ import java.util.List;
 public class ExportJobScheduler {
 
     private final ExportJobRepository exportJobRepository;
-    private final ExportExcelService exportExcelService;
+    private final ExportBatchRepository exportBatchRepository;
+    private final ExportBatchDispatcher exportBatchDispatcher;
+    private final ExportBatchLeaseManager exportBatchLeaseManager;
 
-    @Scheduled(fixedRate = 100000)
+    @Value("${app.cluster.enabled:false}")
+    private boolean CLUSTER_ENABLED;
+
+    @Value("${app.export.recovery.stale-seconds:300}")
+    private long STALE_SECONDS;
+
+    @Value("${app.export.max-retries}")
+    private int MAX_RETRIES;
+
+    @Value("${app.export.retry.backoff-base-seconds:30}")
+    private long BACKOFF_BASE_SECONDS;
+
+    @Value("${app.export.retry.backoff-max-seconds:1800}")
+    private long BACKOFF_MAX_SECONDS;
+
+    private final AtomicLong totalReclaimedBatches = new AtomicLong();
+    private final AtomicLong totalResubmittedJobs = new AtomicLong();
+    private volatile Map<String, Object> lastRecovery = Map.of();
+
+    @Scheduled(fixedDelayString = "${app.export.recovery.interval-ms:30000}")
     public void recoverStuckJobs() {
-        log.info("Bắt đầu quá trình khôi phục các job bị treo");
-
-        List<ExportStatus> listStatus = new ArrayList<>();
-        listStatus.add(ExportStatus.FAILED);
-        listStatus.add(ExportStatus.IN_PROGRESS);
-        listStatus.add(ExportStatus.PENDING);
-        ;
-        List<ExportJob> stuckJobs = exportJobRepository.findStuckJobs(listStatus);
-
-        for (ExportJob job : stuckJobs) {
-            log.info("Đang thử khôi phục job bị treo: {}", job.getJobUniqueId());
-            exportExcelService.retryFailedBatches(job.getJobUniqueId());
+        log.debug("Bắt đầu quá trình khôi phục các job bị treo");
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusSeconds(STALE_SECONDS);
+
+        List<ExportBatch> reclaimed = exportBatchLeaseManager.reclaimStale(staleBefore, now);
+        Set<Long> jobIds = new LinkedHashSet<>();
+        for (ExportBatch batch : reclaimed) {
+            jobIds.add(batch.getExportJob().getId());
+        }
+        int staleBatches = reclaimed.size();
+
+        int retryableBatches = 0;
+        for (Object[] row : exportBatchRepository.countRetryableBatchesByJob(MAX_RETRIES,
+                now.minusSeconds(BACKOFF_BASE_SECONDS), BACKOFF_BASE_SECONDS, BACKOFF_MAX_SECONDS, now)) {
+            jobIds.add(((Number) row[0]).longValue());
+            retryableBatches += ((Number) row[1]).intValue();
+        }
+        jobIds.addAll(exportJobRepository.findIdleJobIds(
+                List.of(ExportStatus.PENDING, ExportStatus.IN_PROGRESS), staleBefore));
+
+        int resubmittedJobs = 0;
+        for (Long jobId : jobIds) {
+            if (exportBatchDispatcher.isActive(jobId)) {
+                continue;
+            }
+            exportBatchDispatcher.submit(jobId);
+            resubmittedJobs++;
+        }
+
+        lastRecovery = Map.of(
+                "ranAt", now,
+                "reclaimedStaleBatches", staleBatches,
+                "retryableFailedBatches", retryableBatches,
+                "resubmittedJobs", resubmittedJobs);
+        totalReclaimedBatches.addAndGet(staleBatches);
+        totalResubmittedJobs.addAndGet(resubmittedJobs);
+        if (staleBatches > 0 || resubmittedJobs > 0) {
+            log.info("Khôi phục: thu hồi {} lô mất heartbeat, {} lô lỗi đã hết thời gian chờ, gửi lại {} job",
+                    staleBatches, retryableBatches, resubmittedJobs);
+        }
+    }
+
+    public Map<String, Object> recoveryStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(lastRecovery);
+        stats.put("staleSeconds", STALE_SECONDS);
+        stats.put("backoffBaseSeconds", BACKOFF_BASE_SECONDS);
+        stats.put("backoffMaxSeconds", BACKOFF_MAX_SECONDS);
+        stats.put("totalReclaimedBatches", totalReclaimedBatches.get());
+        stats.put("totalResubmittedJobs", totalResubmittedJobs.get());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cluster.poll-interval-ms:5000}")
+    public void joinRunningJobs() {
+        if (!CLUSTER_ENABLED) {
+            return;
+        }
+        for (ExportJob job : exportJobRepository.findStuckJobs(List.of(ExportStatus.PENDING, ExportStatus.IN_PROGRESS))) {
+            if (job.getCompletedAt() == null && !exportBatchDispatcher.isActive(job.getId())) {
+                exportBatchDispatcher.submit(job.getId());
+            }
         }
     }
 
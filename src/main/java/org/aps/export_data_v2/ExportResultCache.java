@@ -0,0 +1,188 @@
+package org.aps.export_data_v2;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.constant.ExportStatus;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.entity.ExportJobParameters;
+import org.aps.export_data_v2.reader.KeyBounds;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.aps.export_data_v2.storage.StorageSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExportResultCache {
+    private static final List<ExportStatus> REUSABLE_STATUSES =
+            List.of(ExportStatus.PENDING, ExportStatus.IN_PROGRESS, ExportStatus.COMPLETED);
+    private static final List<ExportStatus> FINISHED_STATUSES =
+            List.of(ExportStatus.COMPLETED, ExportStatus.PARTIALLY_COMPLETED, ExportStatus.FAILED);
+    private static final int LOCK_STRIPES = 64;
+
+    private final ExportJobRepository exportJobRepository;
+    private final ExportBatchRepository exportBatchRepository;
+    private final StorageSink storageSink;
+
+    @Value("${app.storage.cache.enabled:true}")
+    private boolean ENABLED;
+
+    @Value("${app.storage.cache.ttl-hours:24}")
+    private long TTL_HOURS;
+
+    @Value("${app.storage.cache.max-bytes:53687091200}")
+    private long MAX_BYTES;
+
+    @Value("${app.storage.base-path:/tmp/exports}")
+    private String basePath;
+
+    @Value("${app.export.recovery.stale-seconds:300}")
+    private long STALE_SECONDS;
+
+    // Cache locks and usage counters are per JVM. In cluster mode two nodes can still start the same export at once.
+    private final Object[] locks = Stream.generate(Object::new).limit(LOCK_STRIPES).toArray();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong evictedBytes = new AtomicLong();
+    private volatile long usedBytes = -1;
+
+    public static String cacheKey(String exportType, ExportJobParameters parameters, KeyBounds bounds) {
+        String normalized = String.join("|",
+                exportType,
+                String.valueOf(parameters.getExportMode()),
+                String.valueOf(parameters.getBaseJobUniqueId()),
+                String.valueOf(Boolean.TRUE.equals(parameters.getMergeWithBase())),
+                String.valueOf(parameters.getFilter()),
+                String.valueOf(parameters.getColumns()),
+                String.valueOf(parameters.getWorkbookLayout()),
+                String.valueOf(bounds.minKey()),
+                String.valueOf(bounds.maxKey()),
+                String.valueOf(bounds.rowCount()),
+                String.valueOf(bounds.latestChangeDate()),
+                String.valueOf(bounds.checksum()));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Object lockFor(String cacheKey) {
+        return locks[Math.floorMod(cacheKey.hashCode(), LOCK_STRIPES)];
+    }
+
+    public ExportJob lookup(String cacheKey) {
+        if (!ENABLED) {
+            return null;
+        }
+        ExportJob cached = exportJobRepository
+                .findFirstByCacheKeyAndStatusInAndEvictedAtIsNullOrderByCreatedAtDesc(cacheKey, REUSABLE_STATUSES)
+                .filter(job -> job.getStatus() == ExportStatus.COMPLETED ? isAvailable(job) : isAlive(job))
+                .orElse(null);
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        exportJobRepository.touch(cached.getId(), LocalDateTime.now());
+        cached.setCacheHit(true);
+        log.info("Export request matched {} job {}", cached.getStatus(), cached.getJobUniqueId());
+        return cached;
+    }
+
+    private static boolean isAvailable(ExportJob job) {
+        return job.getStorageUrl() != null
+                || (job.getResultFileUrl() != null && Files.isRegularFile(Paths.get(job.getResultFileUrl())));
+    }
+
+    // A job left behind by a dead node keeps its PENDING or IN_PROGRESS status until recovery picks it up.
+    private boolean isAlive(ExportJob job) {
+        LocalDateTime staleBefore = LocalDateTime.now().minusSeconds(STALE_SECONDS);
+        return job.getCreatedAt().isAfter(staleBefore)
+                || exportBatchRepository.existsByExportJobIdAndLastProcessedAtAfter(job.getId(), staleBefore);
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.cache.eviction-interval-ms:600000}")
+    public void evict() {
+        evict(MAX_BYTES);
+    }
+
+    public synchronized long evict(long maxBytes) {
+        Path root = Paths.get(basePath);
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        long used = ExportStorageManager.directorySize(root);
+        LocalDateTime expiry = LocalDateTime.now().minusHours(TTL_HOURS);
+
+        for (ExportJob job : exportJobRepository.findEvictionCandidates(FINISHED_STATUSES)) {
+            LocalDateTime lastUsed = job.getLastAccessedAt() != null ? job.getLastAccessedAt() : job.getCompletedAt();
+            boolean expired = lastUsed.isBefore(expiry);
+            if (!expired && used <= maxBytes) {
+                break;
+            }
+
+            Path directory = root.resolve(job.getJobUniqueId());
+            boolean storedElsewhere = job.getStorageUrl() != null
+                    && !job.getStorageUrl().startsWith(root.toUri().toString());
+            long freed = ExportStorageManager.directorySize(directory);
+            try {
+                ExportStorageManager.deleteDirectory(directory);
+            } catch (IOException e) {
+                log.warn("Could not evict export files of job {}", job.getJobUniqueId(), e);
+                continue;
+            }
+            used -= freed;
+            if (!expired && storedElsewhere) {
+                continue;
+            }
+            if (job.getStorageUrl() != null) {
+                storageSink.delete(job.getStorageUrl());
+            }
+            exportJobRepository.markEvicted(job.getId(), LocalDateTime.now());
+            evictions.incrementAndGet();
+            evictedBytes.addAndGet(freed);
+            log.info("Evicted export files of job {} ({} bytes, last used {})", job.getJobUniqueId(), freed, lastUsed);
+        }
+        usedBytes = used;
+        return used;
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.get());
+        stats.put("evictedBytes", evictedBytes.get());
+        stats.put("usedBytes", usedBytes);
+        stats.put("maxBytes", MAX_BYTES);
+        stats.put("ttlHours", TTL_HOURS);
+        return stats;
+    }
+}
@@ -0,0 +1,234 @@
+package org.aps.export_data_v2;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExportStorageManager {
+    private final ExportResultCache exportResultCache;
+    private final ExportJobRepository exportJobRepository;
+
+    @Value("${app.storage.base-path:/tmp/exports}")
+    private String basePath;
+
+    @Value("${app.storage.quota-bytes:0}")
+    private long QUOTA_BYTES;
+
+    @Value("${app.storage.delete-batch-files:true}")
+    private boolean DELETE_BATCH_FILES;
+
+    @Value("${app.storage.temp-path:}")
+    private String tempPath;
+
+    // Usage is counted per JVM against app.storage.base-path; reservations are also kept on the job rows.
+    private final ConcurrentMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> jobUsage = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private volatile long lastRescanAt;
+    private final AtomicLong rejectedJobs = new AtomicLong();
+    private final AtomicLong deletedBatchFiles = new AtomicLong();
+    private final AtomicLong deletedBatchBytes = new AtomicLong();
+
+    @PostConstruct
+    public void configureTempDirectory() throws IOException {
+        if (tempPath == null || tempPath.isBlank()) {
+            return;
+        }
+        Path directory = Files.createDirectories(Paths.get(tempPath));
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(directory.toFile()));
+        log.info("Writing spreadsheet temp files to {}", directory.toAbsolutePath());
+    }
+
+    public void reserve(String jobUniqueId, long estimatedBytes) {
+        if (QUOTA_BYTES <= 0) {
+            reservations.put(jobUniqueId, new Reservation(estimatedBytes, System.currentTimeMillis()));
+            return;
+        }
+        if (tryReserve(jobUniqueId, estimatedBytes)) {
+            return;
+        }
+
+        // Evicting finished jobs cannot make room the other reservations already hold
+        long evictTo = QUOTA_BYTES - reservedBytes() - estimatedBytes;
+        if (evictTo < 0) {
+            reject(estimatedBytes);
+        }
+        usedBytes.set(exportResultCache.evict(evictTo));
+        if (!tryReserve(jobUniqueId, estimatedBytes)) {
+            reject(estimatedBytes);
+        }
+    }
+
+    private void reject(long estimatedBytes) {
+        rejectedJobs.incrementAndGet();
+        log.warn("Rejected export needing about {} bytes, {} of {} bytes are in use or reserved",
+                estimatedBytes, usedBytes.get() + reservedBytes(), QUOTA_BYTES);
+        throw new RuntimeException("Export storage quota exceeded");
+    }
+
+    public void release(String jobUniqueId) {
+        reservations.remove(jobUniqueId);
+    }
+
+    public void recordWrite(String jobUniqueId, long bytes) {
+        adjustUsage(jobUniqueId, bytes);
+    }
+
+    public long refreshJobUsage(String jobUniqueId) {
+        long actual = directorySize(Paths.get(basePath, jobUniqueId));
+        Long previous = jobUsage.put(jobUniqueId, actual);
+        usedBytes.addAndGet(actual - (previous != null ? previous : 0));
+        return actual;
+    }
+
+    // Writes that race the walk are corrected by the next rescan or by refreshJobUsage when the job finishes.
+    @Scheduled(fixedDelayString = "${app.storage.rescan-interval-ms:60000}")
+    public void rescan() {
+        long startedAt = System.currentTimeMillis();
+        Map<String, Long> usage = new HashMap<>();
+        Path root = Paths.get(basePath);
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> entries = Files.list(root)) {
+                entries.forEach(entry -> usage.put(entry.getFileName().toString(), directorySize(entry)));
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Could not measure {}", root, e);
+                return;
+            }
+        }
+        jobUsage.keySet().retainAll(usage.keySet());
+        jobUsage.putAll(usage);
+        usedBytes.set(usage.values().stream().mapToLong(Long::longValue).sum());
+
+        // Reservations made since the previous rescan may belong to jobs whose rows are not committed yet
+        Map<String, Long> persisted = new HashMap<>();
+        for (ExportJob job : exportJobRepository.findByReservedBytesIsNotNullAndCompletedAtIsNull()) {
+            persisted.put(job.getJobUniqueId(), job.getReservedBytes());
+        }
+        long keepSince = lastRescanAt;
+        reservations.entrySet().removeIf(reservation -> !persisted.containsKey(reservation.getKey())
+                && reservation.getValue().reservedAt() < keepSince);
+        persisted.forEach((jobUniqueId, bytes) -> reservations.putIfAbsent(jobUniqueId, new Reservation(bytes, startedAt)));
+        lastRescanAt = startedAt;
+    }
+
+    public void deleteBatchFiles(List<ExportBatch> batches) {
+        if (!DELETE_BATCH_FILES) {
+            return;
+        }
+        for (ExportBatch batch : batches) {
+            if (batch.getPartialFilePath() == null) {
+                continue;
+            }
+            Path file = Paths.get(batch.getPartialFilePath());
+            try {
+                long size = Files.exists(file) ? Files.size(file) : 0;
+                if (Files.deleteIfExists(file)) {
+                    deletedBatchFiles.incrementAndGet();
+                    deletedBatchBytes.addAndGet(size);
+                    adjustUsage(file.getParent().getFileName().toString(), -size);
+                }
+            } catch (IOException e) {
+                log.warn("Could not delete batch file {}", file, e);
+            }
+        }
+    }
+
+    public long jobUsage(String jobUniqueId) {
+        return jobUsage.getOrDefault(jobUniqueId, 0L);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("quotaBytes", QUOTA_BYTES);
+        stats.put("usedBytes", usedBytes.get());
+        stats.put("reservedBytes", reservedBytes());
+        stats.put("activeReservations", reservations.size());
+        stats.put("rejectedJobs", rejectedJobs.get());
+        stats.put("deletedBatchFiles", deletedBatchFiles.get());
+        stats.put("deletedBatchBytes", deletedBatchBytes.get());
+        if (tempPath != null && !tempPath.isBlank()) {
+            stats.put("tempPath", tempPath);
+            stats.put("tempUsedBytes", directorySize(Paths.get(tempPath)));
+        }
+        return stats;
+    }
+
+    private void adjustUsage(String jobUniqueId, long bytes) {
+        usedBytes.addAndGet(bytes);
+        jobUsage.merge(jobUniqueId, bytes, Long::sum);
+    }
+
+    private synchronized boolean tryReserve(String jobUniqueId, long estimatedBytes) {
+        if (usedBytes.get() + reservedBytes() + estimatedBytes > QUOTA_BYTES) {
+            return false;
+        }
+        reservations.put(jobUniqueId, new Reservation(estimatedBytes, System.currentTimeMillis()));
+        return true;
+    }
+
+    private long reservedBytes() {
+        long reserved = 0;
+        for (Map.Entry<String, Reservation> reservation : reservations.entrySet()) {
+            reserved += Math.max(0, reservation.getValue().bytes() - jobUsage(reservation.getKey()));
+        }
+        return reserved;
+    }
+
+    public static long directorySize(Path directory) {
+        if (!Files.exists(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not measure {}", directory, e);
+            return 0;
+        }
+    }
+
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private record Reservation(long bytes, long reservedAt) {
+    }
+}
@@ -0,0 +1,199 @@
+package org.aps.export_data_v2.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+@Component
+@Slf4j
+public class DeltaSnapshotMerger {
+    private static final String LINE_END = "\r\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${app.storage.base-path:/tmp/exports}")
+    private String basePath;
+
+    public static boolean supports(ExportFormat format) {
+        return format == ExportFormat.CSV || format == ExportFormat.CSV_GZ;
+    }
+
+    public Path merge(ExportJob job, ExportJob baseJob, List<ExportBatch> deltaBatches) throws IOException {
+        ExportFormat format = job.resolveExportFormat();
+        if (!supports(format) || baseJob.resolveExportFormat() != format) {
+            throw new IOException("Cannot merge " + format + " delta into " + baseJob.resolveExportFormat() + " snapshot");
+        }
+
+        String jobId = job.getJobUniqueId();
+        Path target = Paths.get(basePath, jobId, jobId + "_snapshot." + format.getFileExtension());
+        long rowCount = 0;
+        long changedKeys = 0;
+        try (DeltaLines delta = new DeltaLines(deltaBatches, format);
+             ZipFile baseArchive = new ZipFile(baseJob.getResultFileUrl());
+             Writer out = writer(Files.newOutputStream(target), format)) {
+            boolean headerWritten = false;
+            Integer replacedKey = null;
+
+            for (ZipEntry entry : snapshotEntries(baseArchive, baseJob)) {
+                try (BufferedReader reader = reader(baseArchive.getInputStream(entry), format)) {
+                    String line = reader.readLine();
+                    if (!headerWritten && line != null) {
+                        write(out, line);
+                        headerWritten = true;
+                    }
+                    while ((line = reader.readLine()) != null) {
+                        int key = key(line);
+                        while (delta.nextKey() != null && delta.nextKey() <= key) {
+                            replacedKey = delta.nextKey();
+                            rowCount += delta.writeKey(out);
+                            changedKeys++;
+                        }
+                        if (replacedKey == null || replacedKey != key) {
+                            write(out, line);
+                            rowCount++;
+                        }
+                    }
+                }
+            }
+
+            if (!headerWritten && delta.header != null) {
+                write(out, delta.header);
+            }
+            while (delta.nextKey() != null) {
+                rowCount += delta.writeKey(out);
+                changedKeys++;
+            }
+        }
+
+        log.info("Merged {} changed keys of job {} into snapshot of job {} ({} rows)",
+                changedKeys, jobId, baseJob.getJobUniqueId(), rowCount);
+        return target;
+    }
+
+    private static List<ZipEntry> snapshotEntries(ZipFile archive, ExportJob baseJob) {
+        String snapshotEntry = baseJob.getParameters() != null ? baseJob.getParameters().getSnapshotEntry() : null;
+        if (snapshotEntry != null) {
+            ZipEntry entry = archive.getEntry(snapshotEntry);
+            if (entry == null) {
+                throw new IllegalStateException("Snapshot entry " + snapshotEntry + " missing from job " + baseJob.getJobUniqueId());
+            }
+            return List.of(entry);
+        }
+
+        String batchPrefix = baseJob.getJobUniqueId() + "_batch_";
+        return archive.stream()
+                .filter(entry -> entry.getName().startsWith(batchPrefix))
+                .sorted(Comparator.comparingInt(entry -> batchNumber(entry.getName(), batchPrefix)))
+                .map(entry -> (ZipEntry) entry)
+                .toList();
+    }
+
+    private static int batchNumber(String entryName, String batchPrefix) {
+        int end = entryName.indexOf('.', batchPrefix.length());
+        return Integer.parseInt(entryName.substring(batchPrefix.length(), end < 0 ? entryName.length() : end));
+    }
+
+    private static int key(String line) {
+        int end = line.indexOf(',');
+        return Integer.parseInt(end < 0 ? line : line.substring(0, end));
+    }
+
+    private static void write(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write(LINE_END);
+    }
+
+    private static BufferedReader reader(InputStream in, ExportFormat format) throws IOException {
+        InputStream source = format == ExportFormat.CSV_GZ ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+        return new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static Writer writer(OutputStream out, ExportFormat format) throws IOException {
+        OutputStream target = format == ExportFormat.CSV_GZ ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        return new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // Delta batches cover ascending key ranges and each file is sorted by key, so reading them in batch order
+    // yields every changed row in key order without holding them in memory.
+    private static final class DeltaLines implements Closeable {
+        private final Iterator<ExportBatch> batches;
+        private final ExportFormat format;
+        private BufferedReader reader;
+        private String header;
+        private String line;
+        private Integer nextKey;
+
+        private DeltaLines(List<ExportBatch> batches, ExportFormat format) throws IOException {
+            this.batches = batches.stream().sorted(Comparator.comparing(ExportBatch::getBatchNumber)).iterator();
+            this.format = format;
+            advance();
+        }
+
+        private Integer nextKey() {
+            return nextKey;
+        }
+
+        private int writeKey(Writer out) throws IOException {
+            int key = nextKey;
+            int written = 0;
+            while (nextKey != null && nextKey == key) {
+                write(out, line);
+                written++;
+                advance();
+            }
+            return written;
+        }
+
+        private void advance() throws IOException {
+            while (true) {
+                if (reader != null) {
+                    line = reader.readLine();
+                    if (line != null) {
+                        nextKey = key(line);
+                        return;
+                    }
+                    reader.close();
+                    reader = null;
+                }
+                if (!batches.hasNext()) {
+                    line = null;
+                    nextKey = null;
+                    return;
+                }
+                reader = reader(Files.newInputStream(Paths.get(batches.next().getPartialFilePath())), format);
+                String first = reader.readLine();
+                header = header != null ? header : first;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.aps.export_data_v2.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+@Component
+@Slf4j
+public class ExportArchiveAssembler {
+    private final ConcurrentMap<String, OpenArchive> openArchives = new ConcurrentHashMap<>();
+
+    @Value("${app.storage.base-path:/tmp/exports}")
+    private String basePath;
+
+    // A batch finishing after the job was assembled must not start a new .part file next to the final archive.
+    public void append(ExportJob job, ExportBatch batch) throws IOException {
+        if (Files.exists(finalPath(job.getJobUniqueId()))) {
+            return;
+        }
+        OpenArchive archive = openArchives.computeIfAbsent(job.getJobUniqueId(), this::open);
+        synchronized (archive) {
+            if (archive.closed) {
+                return;
+            }
+            try {
+                archive.add(job.resolveExportFormat(), batch);
+            } catch (IOException | RuntimeException e) {
+                discard(job.getJobUniqueId(), archive);
+                throw e;
+            }
+        }
+    }
+
+    public String finish(ExportJob job, List<ExportBatch> completedBatches) throws IOException {
+        String jobUniqueId = job.getJobUniqueId();
+        OpenArchive archive = openArchives.computeIfAbsent(jobUniqueId, this::open);
+        synchronized (archive) {
+            Path finalPath = finalPath(jobUniqueId);
+            if (archive.closed) {
+                if (Files.exists(finalPath)) {
+                    return finalPath.toString();
+                }
+                throw new IOException("Archive for job " + jobUniqueId + " was discarded");
+            }
+            archive.closed = true;
+            try {
+                for (ExportBatch batch : completedBatches) {
+                    archive.require(job.resolveExportFormat(), batch);
+                }
+                archive.closeWriter();
+                Files.move(archive.partPath, finalPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                discard(jobUniqueId, archive);
+                throw e;
+            }
+            openArchives.remove(jobUniqueId, archive);
+            log.info("Assembled archive for job {} with {} entries ({} bytes)",
+                    jobUniqueId, archive.batchNumbers.size(), Files.size(finalPath));
+            return finalPath.toString();
+        }
+    }
+
+    public static boolean addBatch(ZipArchiveWriter writer, ExportFormat format, ExportBatch batch) throws IOException {
+        if (batch.getPartialFilePath() == null) {
+            return false;
+        }
+        Path source = Paths.get(batch.getPartialFilePath());
+        if (!Files.exists(source)) {
+            return false;
+        }
+
+        String entryName = source.getFileName().toString();
+        if (!format.isCompressed()) {
+            writer.addDeflated(entryName, source);
+        } else if (batch.getFileSize() != null && batch.getFileCrc32() != null) {
+            writer.addStored(entryName, source, batch.getFileSize(), batch.getFileCrc32());
+        } else {
+            writer.addStored(entryName, source);
+        }
+        return true;
+    }
+
+    public static boolean extractBatch(ExportBatch batch, Path target) throws IOException {
+        Path archive = archivePath(batch);
+        if (archive == null) {
+            return false;
+        }
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            ZipEntry entry = zipFile.getEntry(Paths.get(batch.getPartialFilePath()).getFileName().toString());
+            if (entry == null) {
+                return false;
+            }
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return true;
+    }
+
+    public static boolean addArchivedBatch(ZipArchiveWriter writer, ExportBatch batch) throws IOException {
+        Path archive = archivePath(batch);
+        if (archive == null) {
+            return false;
+        }
+        String entryName = Paths.get(batch.getPartialFilePath()).getFileName().toString();
+        try (ZipArchiveReader reader = ZipArchiveReader.open(archive)) {
+            ZipArchiveReader.Entry entry = reader.getEntry(entryName);
+            if (entry == null) {
+                return false;
+            }
+            reader.copyTo(writer, entry, entryName);
+        }
+        return true;
+    }
+
+    private static Path archivePath(ExportBatch batch) {
+        if (batch.getPartialFilePath() == null) {
+            return null;
+        }
+        Path directory = Paths.get(batch.getPartialFilePath()).getParent();
+        Path archive = directory.resolve(directory.getFileName() + "_final.zip");
+        return Files.isRegularFile(archive) ? archive : null;
+    }
+
+    private void discard(String jobUniqueId, OpenArchive archive) {
+        archive.closed = true;
+        openArchives.remove(jobUniqueId, archive);
+        try {
+            archive.closeWriter();
+        } catch (IOException e) {
+            log.debug("Could not close partial archive for job {}", jobUniqueId, e);
+        }
+        try {
+            Files.deleteIfExists(archive.partPath);
+        } catch (IOException e) {
+            log.warn("Could not discard partial archive for job {}", jobUniqueId, e);
+        }
+    }
+
+    private OpenArchive open(String jobUniqueId) {
+        Path partPath = Paths.get(basePath, jobUniqueId, jobUniqueId + "_final.zip.part");
+        try {
+            return new OpenArchive(partPath, ZipArchiveWriter.create(partPath));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open archive for job " + jobUniqueId, e);
+        }
+    }
+
+    private Path finalPath(String jobUniqueId) {
+        return Paths.get(basePath, jobUniqueId, jobUniqueId + "_final.zip");
+    }
+
+    private static final class OpenArchive {
+        private final Path partPath;
+        private final ZipArchiveWriter writer;
+        private final Set<Integer> batchNumbers = new HashSet<>();
+        private boolean closed;
+        private boolean writerClosed;
+
+        private OpenArchive(Path partPath, ZipArchiveWriter writer) {
+            this.partPath = partPath;
+            this.writer = writer;
+        }
+
+        private void closeWriter() throws IOException {
+            if (!writerClosed) {
+                writerClosed = true;
+                writer.close();
+            }
+        }
+
+        private boolean add(ExportFormat format, ExportBatch batch) throws IOException {
+            if (batchNumbers.contains(batch.getBatchNumber())) {
+                return true;
+            }
+            if (addBatch(writer, format, batch)) {
+                batchNumbers.add(batch.getBatchNumber());
+                return true;
+            }
+            return false;
+        }
+
+        // A completed batch whose file is gone, e.g. written on a node that did not share the base path,
+        // must fail the job rather than leave a hole in the archive.
+        private void require(ExportFormat format, ExportBatch batch) throws IOException {
+            if (add(format, batch)) {
+                return;
+            }
+            if (!addArchivedBatch(writer, batch)) {
+                throw new IOException("Batch " + batch.getBatchNumber() + " has no file to archive at "
+                        + batch.getPartialFilePath());
+            }
+            batchNumbers.add(batch.getBatchNumber());
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.aps.export_data_v2.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.writer.ExcelSheetWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Component
+@Slf4j
+public class XlsxWorkbookMerger {
+    private static final String CONTENT_TYPES_PART = "[Content_Types].xml";
+    private static final String WORKBOOK_PART = "xl/workbook.xml";
+    private static final String WORKBOOK_RELS_PART = "xl/_rels/workbook.xml.rels";
+    private static final String APP_PART = "docProps/app.xml";
+    private static final String CORE_PART = "docProps/core.xml";
+    private static final String WORKSHEETS_DIRECTORY = "xl/worksheets/";
+    private static final Set<String> REWRITTEN_PARTS =
+            Set.of(CONTENT_TYPES_PART, WORKBOOK_PART, WORKBOOK_RELS_PART, APP_PART);
+    // core.xml carries creation timestamps that differ per batch, so the first batch's copy is kept as is
+    private static final Set<String> VOLATILE_PARTS = Set.of(CORE_PART);
+    private static final Set<String> SHARED_RELATIONSHIPS = Set.of("/styles", "/sharedStrings", "/theme");
+
+    private static final Pattern WORKSHEET_OVERRIDE = Pattern.compile("<Override\\b[^>]*worksheet\\+xml\"[^>]*/>");
+    private static final Pattern WORKSHEET_RELATIONSHIP = Pattern.compile("<Relationship\\b[^>]*/worksheet\"[^>]*/>");
+    private static final Pattern RELATIONSHIP = Pattern.compile("<Relationship\\b[^>]*/>");
+    private static final Pattern SHEET = Pattern.compile("<sheet\\b[^>]*/>");
+    private static final Pattern DEFINED_NAME = Pattern.compile("<definedName\\b([^>]*)>(.*?)</definedName>", Pattern.DOTALL);
+    private static final Pattern RELATIONSHIP_ID = Pattern.compile("\\s\\w+:id=\"([^\"]*)\"");
+    private static final Pattern SHEET_REFERENCE = Pattern.compile("'((?:[^']|'')+)'!|([^\\s'!,()=+\\-*/&^<>:;\"{}]+)!");
+    private static final Pattern APPLICATION = Pattern.compile("<Application>.*?</Application>", Pattern.DOTALL);
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String EXTENDED_PROPERTIES_NS =
+            "http://schemas.openxmlformats.org/officeDocument/2006/extended-properties";
+    private static final String VT_NS = "http://schemas.openxmlformats.org/officeDocument/2006/docPropsVTypes";
+
+    @Value("${app.storage.base-path:/tmp/exports}")
+    private String basePath;
+
+    public Path merge(ExportJob job, List<ExportBatch> batches, String title) throws IOException {
+        String jobId = job.getJobUniqueId();
+        Path target = Paths.get(basePath, jobId, jobId + "_workbook.xlsx");
+        Path partPath = Paths.get(basePath, jobId, jobId + "_workbook.xlsx.part");
+
+        String contentTypes = null;
+        String workbookRels = null;
+        String appProperties = null;
+        Map<String, ZipArchiveReader.Entry> sharedParts = null;
+        List<String> sheetNames = new ArrayList<>();
+        StringBuilder definedNames = new StringBuilder();
+        Map<String, String> globalNames = new HashMap<>();
+        try (ZipArchiveWriter writer = ZipArchiveWriter.create(partPath)) {
+            for (ExportBatch batch : batches) {
+                if (batch.getPartialFilePath() == null || !Files.isRegularFile(Paths.get(batch.getPartialFilePath()))) {
+                    continue;
+                }
+                Path source = Paths.get(batch.getPartialFilePath());
+                try (ZipArchiveReader reader = ZipArchiveReader.open(source)) {
+                    String workbook = readPart(reader, WORKBOOK_PART);
+                    String rels = readPart(reader, WORKBOOK_RELS_PART);
+                    Map<String, String> sheetTargets = sheetTargets(rels, source);
+
+                    Map<String, ZipArchiveReader.Entry> batchParts = sharedParts(reader);
+                    if (sharedParts == null) {
+                        contentTypes = readPart(reader, CONTENT_TYPES_PART);
+                        workbookRels = rels;
+                        ZipArchiveReader.Entry app = reader.getEntry(APP_PART);
+                        appProperties = app != null ? new String(reader.read(app), StandardCharsets.UTF_8) : null;
+                        sharedParts = batchParts;
+                        for (ZipArchiveReader.Entry entry : sharedParts.values()) {
+                            reader.copyTo(writer, entry, entry.name());
+                        }
+                    } else {
+                        checkSharedParts(sharedParts, batchParts, source);
+                    }
+
+                    // Sheets are copied in workbook order, which is also what localSheetId indexes
+                    int sheetOffset = sheetNames.size();
+                    Map<String, String> renamedSheets = new HashMap<>();
+                    Matcher sheet = SHEET.matcher(workbook);
+                    while (sheet.find()) {
+                        String part = sheetTargets.get(relationshipId(sheet.group()));
+                        ZipArchiveReader.Entry entry = part != null ? reader.getEntry(part) : null;
+                        if (entry == null) {
+                            throw new IOException("Sheet " + sheet.group() + " of " + source + " has no worksheet part");
+                        }
+                        int number = sheetNames.size() + 1;
+                        reader.copyTo(writer, entry, WORKSHEETS_DIRECTORY + "sheet" + number + ".xml");
+                        copySheetRels(reader, writer, part, number, source);
+
+                        String name = ExcelSheetWriter.sheetName(title, number);
+                        renamedSheets.put(unescape(attribute(sheet.group(), "name")), name);
+                        sheetNames.add(name);
+                    }
+                    appendDefinedNames(workbook, sheetOffset, renamedSheets, definedNames, globalNames, source);
+                }
+            }
+            if (sheetNames.isEmpty()) {
+                throw new IOException("No completed batch workbooks to merge for job " + jobId);
+            }
+
+            writer.addStored(CONTENT_TYPES_PART, contentTypes(contentTypes, sheetNames.size()));
+            writer.addStored(WORKBOOK_RELS_PART, workbookRels(workbookRels, sheetNames.size()));
+            writer.addStored(WORKBOOK_PART, workbook(sheetNames, definedNames));
+            if (appProperties != null) {
+                writer.addStored(APP_PART, appProperties(appProperties, sheetNames));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partPath);
+            throw e;
+        }
+
+        Files.move(partPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Merged {} sheets from {} batches into workbook for job {} ({} bytes)",
+                sheetNames.size(), batches.size(), jobId, Files.size(target));
+        return target;
+    }
+
+    private static String readPart(ZipArchiveReader reader, String name) throws IOException {
+        ZipArchiveReader.Entry entry = reader.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Batch workbook has no " + name);
+        }
+        return new String(reader.read(entry), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, ZipArchiveReader.Entry> sharedParts(ZipArchiveReader reader) {
+        Map<String, ZipArchiveReader.Entry> parts = new LinkedHashMap<>();
+        for (ZipArchiveReader.Entry entry : reader.getEntries()) {
+            if (!REWRITTEN_PARTS.contains(entry.name()) && !entry.name().startsWith(WORKSHEETS_DIRECTORY)) {
+                parts.put(entry.name(), entry);
+            }
+        }
+        return parts;
+    }
+
+    // Styles and shared strings are indexed from the sheets, so every batch must carry exactly the first batch's
+    private static void checkSharedParts(Map<String, ZipArchiveReader.Entry> first,
+                                         Map<String, ZipArchiveReader.Entry> batch, Path source) throws IOException {
+        if (!first.keySet().equals(batch.keySet())) {
+            throw new IOException(source + " has parts " + batch.keySet() + " but the first batch workbook has "
+                    + first.keySet());
+        }
+        for (ZipArchiveReader.Entry entry : batch.values()) {
+            ZipArchiveReader.Entry expected = first.get(entry.name());
+            if (!VOLATILE_PARTS.contains(entry.name())
+                    && (entry.crc32() != expected.crc32() || entry.size() != expected.size())) {
+                throw new IOException(source + " has a different " + entry.name() + " than the first batch workbook");
+            }
+        }
+    }
+
+    private static Map<String, String> sheetTargets(String rels, Path source) throws IOException {
+        Map<String, String> targets = new HashMap<>();
+        Matcher relationship = RELATIONSHIP.matcher(rels);
+        while (relationship.find()) {
+            String element = relationship.group();
+            String type = attribute(element, "Type");
+            if (type.endsWith("/worksheet")) {
+                targets.put(attribute(element, "Id"), resolve("xl/", attribute(element, "Target")));
+            } else if (SHARED_RELATIONSHIPS.stream().noneMatch(type::endsWith)) {
+                throw new IOException(source + " links " + type + " from its workbook, which cannot be merged");
+            }
+        }
+        return targets;
+    }
+
+    private static void copySheetRels(ZipArchiveReader reader, ZipArchiveWriter writer, String part, int number,
+                                      Path source) throws IOException {
+        String relsPart = WORKSHEETS_DIRECTORY + "_rels/" + part.substring(WORKSHEETS_DIRECTORY.length()) + ".rels";
+        ZipArchiveReader.Entry rels = reader.getEntry(relsPart);
+        if (rels == null) {
+            return;
+        }
+        Matcher relationship = RELATIONSHIP.matcher(new String(reader.read(rels), StandardCharsets.UTF_8));
+        while (relationship.find()) {
+            if (!"External".equals(attribute(relationship.group(), "TargetMode"))) {
+                throw new IOException(source + " links " + attribute(relationship.group(), "Target") + " from " + part
+                        + ", which cannot be merged");
+            }
+        }
+        reader.copyTo(writer, rels, WORKSHEETS_DIRECTORY + "_rels/sheet" + number + ".xml.rels");
+    }
+
+    private static void appendDefinedNames(String workbook, int sheetOffset, Map<String, String> renamedSheets,
+                                           StringBuilder definedNames, Map<String, String> globalNames, Path source)
+            throws IOException {
+        Matcher definedName = DEFINED_NAME.matcher(workbook);
+        while (definedName.find()) {
+            String attributes = definedName.group(1);
+            String name = attribute(attributes, "name");
+            String formula = escape(renameSheets(unescape(definedName.group(2)), renamedSheets, name, source));
+            String localSheetId = attribute(attributes, "localSheetId");
+            if (localSheetId != null) {
+                attributes = attributes.replace("localSheetId=\"" + localSheetId + "\"",
+                        "localSheetId=\"" + (sheetOffset + Integer.parseInt(localSheetId)) + "\"");
+            }
+
+            String element = "<definedName" + attributes + ">" + formula + "</definedName>";
+            if (localSheetId == null) {
+                String previous = globalNames.putIfAbsent(name, element);
+                if (previous != null) {
+                    if (!previous.equals(element)) {
+                        throw new IOException("Defined name " + name + " in " + source
+                                + " differs from the one in an earlier batch workbook");
+                    }
+                    continue;
+                }
+            }
+            definedNames.append(element);
+        }
+    }
+
+    private static String renameSheets(String formula, Map<String, String> renamedSheets, String name, Path source)
+            throws IOException {
+        StringBuilder renamed = new StringBuilder();
+        Matcher reference = SHEET_REFERENCE.matcher(formula);
+        while (reference.find()) {
+            String sheet = reference.group(1) != null ? reference.group(1).replace("''", "'") : reference.group(2);
+            String newName = renamedSheets.get(sheet);
+            if (newName == null) {
+                throw new IOException("Defined name " + name + " in " + source + " refers to unknown sheet " + sheet);
+            }
+            reference.appendReplacement(renamed, Matcher.quoteReplacement("'" + newName.replace("'", "''") + "'!"));
+        }
+        reference.appendTail(renamed);
+        return renamed.toString();
+    }
+
+    private static byte[] contentTypes(String template, int sheetCount) {
+        StringBuilder overrides = new StringBuilder();
+        for (int sheet = 1; sheet <= sheetCount; sheet++) {
+            overrides.append("<Override PartName=\"/xl/worksheets/sheet").append(sheet)
+                    .append(".xml\" ContentType=\"").append(ExcelSheetWriter.WORKSHEET_CONTENT_TYPE).append("\"/>");
+        }
+        String contentTypes = WORKSHEET_OVERRIDE.matcher(template).replaceAll("");
+        return insertBefore(contentTypes, "</Types>", overrides);
+    }
+
+    private static byte[] workbookRels(String template, int sheetCount) {
+        StringBuilder relationships = new StringBuilder();
+        for (int sheet = 1; sheet <= sheetCount; sheet++) {
+            relationships.append("<Relationship Id=\"rIdSheet").append(sheet).append("\" Type=\"").append(REL_NS)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(sheet).append(".xml\"/>");
+        }
+        String workbookRels = WORKSHEET_RELATIONSHIP.matcher(template).replaceAll("");
+        return insertBefore(workbookRels, "</Relationships>", relationships);
+    }
+
+    private static byte[] workbook(List<String> sheetNames, CharSequence definedNames) {
+        StringBuilder workbook = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\"><sheets>");
+        for (int sheet = 1; sheet <= sheetNames.size(); sheet++) {
+            workbook.append("<sheet name=\"").append(escape(sheetNames.get(sheet - 1)))
+                    .append("\" sheetId=\"").append(sheet).append("\" r:id=\"rIdSheet").append(sheet).append("\"/>");
+        }
+        workbook.append("</sheets>");
+        if (!definedNames.isEmpty()) {
+            workbook.append("<definedNames>").append(definedNames).append("</definedNames>");
+        }
+        return workbook.append("</workbook>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] appProperties(String template, List<String> sheetNames) {
+        StringBuilder properties = new StringBuilder(XML_DECLARATION).append("<Properties xmlns=\"")
+                .append(EXTENDED_PROPERTIES_NS).append("\" xmlns:vt=\"").append(VT_NS).append("\">");
+        Matcher application = APPLICATION.matcher(template);
+        if (application.find()) {
+            properties.append(application.group());
+        }
+        properties.append("<HeadingPairs><vt:vector size=\"2\" baseType=\"variant\">")
+                .append("<vt:variant><vt:lpstr>Worksheets</vt:lpstr></vt:variant>")
+                .append("<vt:variant><vt:i4>").append(sheetNames.size()).append("</vt:i4></vt:variant>")
+                .append("</vt:vector></HeadingPairs>")
+                .append("<TitlesOfParts><vt:vector size=\"").append(sheetNames.size()).append("\" baseType=\"lpstr\">");
+        for (String name : sheetNames) {
+            properties.append("<vt:lpstr>").append(escape(name)).append("</vt:lpstr>");
+        }
+        return properties.append("</vt:vector></TitlesOfParts></Properties>").toString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] insertBefore(String xml, String closingTag, CharSequence content) {
+        int position = xml.lastIndexOf(closingTag);
+        if (position < 0) {
+            throw new IllegalStateException("Missing " + closingTag + " in batch workbook");
+        }
+        return (xml.substring(0, position) + content + xml.substring(position)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String resolve(String base, String target) {
+        return target.startsWith("/") ? target.substring(1) : base + target;
+    }
+
+    private static String relationshipId(String element) {
+        Matcher matcher = RELATIONSHIP_ID.matcher(element);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String attribute(String element, String name) {
+        Matcher matcher = Pattern.compile("\\s" + name + "=\"([^\"]*)\"").matcher(element);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+}
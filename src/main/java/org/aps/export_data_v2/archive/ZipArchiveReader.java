@@ -0,0 +1,226 @@
+package org.aps.export_data_v2.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+public class ZipArchiveReader implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private final Path source;
+    private final FileChannel channel;
+    private final List<Entry> entries;
+    private long directoryOffset;
+
+    private ZipArchiveReader(Path source, FileChannel channel) throws IOException {
+        this.source = source;
+        this.channel = channel;
+        this.entries = Collections.unmodifiableList(readCentralDirectory());
+    }
+
+    public static ZipArchiveReader open(Path source) throws IOException {
+        FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+        try {
+            return new ZipArchiveReader(source, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public Entry getEntry(String name) {
+        return entries.stream().filter(entry -> entry.name().equals(name)).findFirst().orElse(null);
+    }
+
+    public long getDirectoryOffset() {
+        return directoryOffset;
+    }
+
+    public long entryLength(Entry entry) {
+        int index = entries.indexOf(entry);
+        long next = index + 1 < entries.size() ? entries.get(index + 1).localHeaderOffset() : directoryOffset;
+        return next - entry.localHeaderOffset();
+    }
+
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long written = channel.transferTo(position + transferred, count - transferred, target);
+            if (written <= 0) {
+                throw new ZipException("Unexpected end of " + source);
+            }
+            transferred += written;
+        }
+    }
+
+    public byte[] read(Entry entry) throws IOException {
+        if (entry.size() > Integer.MAX_VALUE - 8 || entry.compressedSize() > Integer.MAX_VALUE - 8) {
+            throw new ZipException(entry.name() + " in " + source + " is too large to read into memory");
+        }
+        ByteBuffer compressed = read(dataOffset(entry), (int) entry.compressedSize());
+        if (entry.method() == METHOD_STORED) {
+            return compressed.array();
+        }
+        if (entry.method() != METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + entry.method() + " for " + entry.name());
+        }
+
+        Inflater inflater = new Inflater(true);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed.array()), inflater)) {
+            return in.readAllBytes();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public void copyTo(ZipArchiveWriter writer, Entry entry, String name) throws IOException {
+        writer.addRaw(name, entry.method(), entry.crc32(), entry.compressedSize(), entry.size(), channel,
+                dataOffset(entry));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = read(fileSize - tailSize, tailSize);
+        int endPosition = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                endPosition = i;
+                break;
+            }
+        }
+        if (endPosition < 0) {
+            throw new ZipException("No end of central directory in " + source);
+        }
+
+        long entryCount = Short.toUnsignedLong(tail.getShort(endPosition + 10));
+        long directorySize = Integer.toUnsignedLong(tail.getInt(endPosition + 12));
+        long directoryOffset = Integer.toUnsignedLong(tail.getInt(endPosition + 16));
+        long locatorOffset = fileSize - tailSize + endPosition - 20;
+        if (locatorOffset >= 0 && read(locatorOffset, 20).getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+            long zip64EndOffset = read(locatorOffset, 20).getLong(8);
+            ByteBuffer end64 = read(zip64EndOffset, 56);
+            if (end64.getInt(0) != ZIP64_END_SIGNATURE) {
+                throw new ZipException("Invalid zip64 end of central directory in " + source);
+            }
+            entryCount = end64.getLong(32);
+            directorySize = end64.getLong(40);
+            directoryOffset = end64.getLong(48);
+        }
+        if (directorySize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory of " + source + " is too large");
+        }
+
+        this.directoryOffset = directoryOffset;
+        ByteBuffer directory = read(directoryOffset, (int) directorySize);
+        List<Entry> entries = new ArrayList<>();
+        for (long i = 0; i < entryCount; i++) {
+            int start = directory.position();
+            if (directory.getInt(start) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header in " + source);
+            }
+            int flags = Short.toUnsignedInt(directory.getShort(start + 8));
+            int method = Short.toUnsignedInt(directory.getShort(start + 10));
+            int dosTime = directory.getInt(start + 12);
+            long crc32 = Integer.toUnsignedLong(directory.getInt(start + 16));
+            long compressedSize = Integer.toUnsignedLong(directory.getInt(start + 20));
+            long size = Integer.toUnsignedLong(directory.getInt(start + 24));
+            int nameLength = Short.toUnsignedInt(directory.getShort(start + 28));
+            int extraLength = Short.toUnsignedInt(directory.getShort(start + 30));
+            int commentLength = Short.toUnsignedInt(directory.getShort(start + 32));
+            long localHeaderOffset = Integer.toUnsignedLong(directory.getInt(start + 42));
+
+            byte[] name = new byte[nameLength];
+            directory.get(start + 46, name);
+            int extra = start + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            boolean zip64 = false;
+            while (extra + 4 <= extraEnd) {
+                int id = Short.toUnsignedInt(directory.getShort(extra));
+                int length = Short.toUnsignedInt(directory.getShort(extra + 2));
+                if (id == ZIP64_EXTRA_ID) {
+                    int field = extra + 4;
+                    if (size == ZIP64_LIMIT) {
+                        zip64 = true;
+                        size = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == ZIP64_LIMIT) {
+                        compressedSize = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_LIMIT) {
+                        localHeaderOffset = directory.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), method, flags, crc32, compressedSize,
+                    size, zip64, dosTime, localHeaderOffset));
+            directory.position(extraEnd + commentLength);
+        }
+        return entries;
+    }
+
+    private long dataOffset(Entry entry) throws IOException {
+        ByteBuffer header = read(entry.localHeaderOffset(), 30);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for " + entry.name() + " in " + source);
+        }
+        return entry.localHeaderOffset() + 30
+                + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of " + source);
+            }
+        }
+        return buffer.flip();
+    }
+
+    public record Entry(String name, int method, int flags, long crc32, long compressedSize, long size,
+                        boolean zip64, int dosTime, long localHeaderOffset) {
+
+        public ZipEntryInfo info(long offset) {
+            return new ZipEntryInfo(name, method, flags, crc32, compressedSize, size, zip64, dosTime, offset);
+        }
+    }
+}
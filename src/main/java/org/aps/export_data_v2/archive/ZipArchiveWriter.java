@@ -0,0 +1,359 @@
+package org.aps.export_data_v2.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+public class ZipArchiveWriter implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRY_LIMIT = 0xFFFF;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+
+    private final WritableByteChannel out;
+    private final List<Entry> entries = new ArrayList<>();
+    private long position;
+
+    public ZipArchiveWriter(WritableByteChannel out) {
+        this(out, 0);
+    }
+
+    public ZipArchiveWriter(WritableByteChannel out, long position) {
+        this.out = out;
+        this.position = position;
+    }
+
+    public static ZipArchiveWriter create(Path target) throws IOException {
+        return new ZipArchiveWriter(FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public ZipEntryInfo getLastEntry() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1).info();
+    }
+
+    public void addExternal(ZipEntryInfo info) {
+        entries.add(new Entry(info.name(), info.method(), info.flags(), info.offset(), info.crc32(),
+                info.compressedSize(), info.size(), info.zip64(), info.dosTime()));
+    }
+
+    public List<ZipEntryInfo> closeWithoutDirectory() throws IOException {
+        out.close();
+        return entries.stream().map(Entry::info).toList();
+    }
+
+    public void addStored(String name, Path source, long size, long crc32) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            addRaw(name, METHOD_STORED, crc32, size, size, channel, 0);
+        }
+    }
+
+    public void addStored(String name, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        Entry entry = new Entry(name, METHOD_STORED, 0, position, crc.getValue(), content.length, content.length, false);
+        writeLocalHeader(entry);
+        write(buffer(content.length).put(content));
+        entries.add(entry);
+    }
+
+    public void addRaw(String name, int method, long crc32, long compressedSize, long size, FileChannel source,
+                       long dataOffset) throws IOException {
+        boolean zip64 = size >= ZIP64_LIMIT || compressedSize >= ZIP64_LIMIT;
+        Entry entry = new Entry(name, method, 0, position, crc32, compressedSize, size, zip64);
+        writeLocalHeader(entry);
+        long transferred = 0;
+        while (transferred < compressedSize) {
+            long count = source.transferTo(dataOffset + transferred, compressedSize - transferred, out);
+            if (count <= 0) {
+                throw new IOException("Unexpected end of " + name + " after " + transferred + " of " + compressedSize + " bytes");
+            }
+            transferred += count;
+        }
+        position += compressedSize;
+        entries.add(entry);
+    }
+
+    public void addStored(String name, Path source) throws IOException {
+        long size = Files.size(source);
+        addStored(name, source, size, crc32(source));
+    }
+
+    public void addDeflated(String name, Path source) throws IOException {
+        long size = Files.size(source);
+        boolean zip64 = size >= ZIP64_LIMIT - (size >>> 10) - 1024;
+        Entry entry = new Entry(name, METHOD_DEFLATED, FLAG_DATA_DESCRIPTOR, position, 0, 0, size, zip64);
+        writeLocalHeader(entry);
+
+        CRC32 crc = new CRC32();
+        CountingOutputStream counter = new CountingOutputStream(Channels.newOutputStream(out));
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            DeflaterOutputStream deflating = new DeflaterOutputStream(counter, deflater, 64 * 1024);
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                deflating.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+            deflating.finish();
+        } finally {
+            deflater.end();
+        }
+
+        entry.crc32 = crc.getValue();
+        entry.compressedSize = counter.count;
+        position += counter.count;
+
+        ByteBuffer descriptor = buffer(zip64 ? 24 : 16);
+        descriptor.putInt(DATA_DESCRIPTOR_SIGNATURE);
+        descriptor.putInt((int) entry.crc32);
+        if (zip64) {
+            descriptor.putLong(entry.compressedSize);
+            descriptor.putLong(entry.size);
+        } else {
+            descriptor.putInt((int) entry.compressedSize);
+            descriptor.putInt((int) entry.size);
+        }
+        write(descriptor);
+        entries.add(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            long centralDirectoryOffset = position;
+            for (Entry entry : entries) {
+                writeCentralHeader(entry);
+            }
+            long centralDirectorySize = position - centralDirectoryOffset;
+            writeEnd(centralDirectoryOffset, centralDirectorySize);
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        int extraLength = entry.zip64 ? 20 : 0;
+        ByteBuffer header = buffer(30 + name.length + extraLength);
+        header.putInt(LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) (entry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        header.putShort((short) (entry.flags | FLAG_UTF8));
+        header.putShort((short) entry.method);
+        header.putInt(entry.dosTime);
+        boolean deferred = (entry.flags & FLAG_DATA_DESCRIPTOR) != 0;
+        header.putInt(deferred ? 0 : (int) entry.crc32);
+        if (entry.zip64) {
+            header.putInt((int) ZIP64_LIMIT);
+            header.putInt((int) ZIP64_LIMIT);
+        } else {
+            header.putInt(deferred ? 0 : (int) entry.compressedSize);
+            header.putInt(deferred ? 0 : (int) entry.size);
+        }
+        header.putShort((short) name.length);
+        header.putShort((short) extraLength);
+        header.put(name);
+        if (entry.zip64) {
+            header.putShort(ZIP64_EXTRA_ID);
+            header.putShort((short) 16);
+            header.putLong(deferred ? 0 : entry.size);
+            header.putLong(deferred ? 0 : entry.compressedSize);
+        }
+        write(header);
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        boolean sizes64 = entry.zip64 || entry.size >= ZIP64_LIMIT || entry.compressedSize >= ZIP64_LIMIT;
+        boolean offset64 = entry.offset >= ZIP64_LIMIT;
+        int extraDataLength = (sizes64 ? 16 : 0) + (offset64 ? 8 : 0);
+        int extraLength = extraDataLength == 0 ? 0 : 4 + extraDataLength;
+
+        ByteBuffer header = buffer(46 + name.length + extraLength);
+        header.putInt(CENTRAL_HEADER_SIGNATURE);
+        header.putShort((short) VERSION_ZIP64);
+        header.putShort((short) (extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        header.putShort((short) (entry.flags | FLAG_UTF8));
+        header.putShort((short) entry.method);
+        header.putInt(entry.dosTime);
+        header.putInt((int) entry.crc32);
+        header.putInt((int) (sizes64 ? ZIP64_LIMIT : entry.compressedSize));
+        header.putInt((int) (sizes64 ? ZIP64_LIMIT : entry.size));
+        header.putShort((short) name.length);
+        header.putShort((short) extraLength);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putInt(0);
+        header.putInt((int) (offset64 ? ZIP64_LIMIT : entry.offset));
+        header.put(name);
+        if (extraLength > 0) {
+            header.putShort(ZIP64_EXTRA_ID);
+            header.putShort((short) extraDataLength);
+            if (sizes64) {
+                header.putLong(entry.size);
+                header.putLong(entry.compressedSize);
+            }
+            if (offset64) {
+                header.putLong(entry.offset);
+            }
+        }
+        write(header);
+    }
+
+    private void writeEnd(long centralDirectoryOffset, long centralDirectorySize) throws IOException {
+        boolean zip64 = entries.size() >= ZIP64_ENTRY_LIMIT
+                || centralDirectoryOffset >= ZIP64_LIMIT
+                || centralDirectorySize >= ZIP64_LIMIT;
+        if (zip64) {
+            long zip64EndOffset = position;
+            ByteBuffer end64 = buffer(56 + 20);
+            end64.putInt(ZIP64_END_SIGNATURE);
+            end64.putLong(44);
+            end64.putShort((short) VERSION_ZIP64);
+            end64.putShort((short) VERSION_ZIP64);
+            end64.putInt(0);
+            end64.putInt(0);
+            end64.putLong(entries.size());
+            end64.putLong(entries.size());
+            end64.putLong(centralDirectorySize);
+            end64.putLong(centralDirectoryOffset);
+            end64.putInt(ZIP64_LOCATOR_SIGNATURE);
+            end64.putInt(0);
+            end64.putLong(zip64EndOffset);
+            end64.putInt(1);
+            write(end64);
+        }
+
+        ByteBuffer end = buffer(22);
+        end.putInt(END_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) (zip64 ? ZIP64_ENTRY_LIMIT : entries.size()));
+        end.putShort((short) (zip64 ? ZIP64_ENTRY_LIMIT : entries.size()));
+        end.putInt((int) (zip64 ? ZIP64_LIMIT : centralDirectorySize));
+        end.putInt((int) (zip64 ? ZIP64_LIMIT : centralDirectoryOffset));
+        end.putShort((short) 0);
+        write(end);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer);
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static long crc32(Path source) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static int dosTime(LocalDateTime time) {
+        int year = Math.max(time.getYear(), 1980);
+        return (year - 1980) << 25
+                | time.getMonthValue() << 21
+                | time.getDayOfMonth() << 16
+                | time.getHour() << 11
+                | time.getMinute() << 5
+                | time.getSecond() >> 1;
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final int method;
+        private final int flags;
+        private final long offset;
+        private final long size;
+        private final boolean zip64;
+        private final int dosTime;
+        private long crc32;
+        private long compressedSize;
+
+        private Entry(String name, int method, int flags, long offset, long crc32, long compressedSize,
+                      long size, boolean zip64) {
+            this(name, method, flags, offset, crc32, compressedSize, size, zip64, dosTime(LocalDateTime.now()));
+        }
+
+        private Entry(String name, int method, int flags, long offset, long crc32, long compressedSize,
+                      long size, boolean zip64, int dosTime) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.offset = offset;
+            this.crc32 = crc32;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.zip64 = zip64;
+            this.dosTime = dosTime;
+        }
+
+        private ZipEntryInfo info() {
+            return new ZipEntryInfo(name, method, flags, crc32, compressedSize, size, zip64, dosTime, offset);
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
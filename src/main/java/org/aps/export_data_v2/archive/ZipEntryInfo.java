@@ -0,0 +1,9 @@
+package org.aps.export_data_v2.archive;
+
+public record ZipEntryInfo(String name, int method, int flags, long crc32, long compressedSize, long size,
+                           boolean zip64, int dosTime, long offset) {
+
+    public ZipEntryInfo at(long offset) {
+        return new ZipEntryInfo(name, method, flags, crc32, compressedSize, size, zip64, dosTime, offset);
+    }
+}
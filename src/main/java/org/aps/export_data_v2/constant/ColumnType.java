@@ -0,0 +1,8 @@
+package org.aps.export_data_v2.constant;
+
+public enum ColumnType {
+    INTEGER,
+    NUMERIC,
+    DATE,
+    TEXT
+}
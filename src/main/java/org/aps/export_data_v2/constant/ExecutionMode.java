@@ -0,0 +1,16 @@
+package org.aps.export_data_v2.constant;
+
+public enum ExecutionMode {
+    PLATFORM("Luồng hệ thống cố định"),
+    VIRTUAL("Luồng ảo");
+
+    private final String description;
+
+    ExecutionMode(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
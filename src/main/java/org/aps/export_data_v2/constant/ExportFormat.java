@@ -0,0 +1,30 @@
+package org.aps.export_data_v2.constant;
+
+public enum ExportFormat {
+    EXCEL("xlsx", true, "Excel (.xlsx)"),
+    CSV("csv", false, "CSV"),
+    CSV_GZ("csv.gz", true, "CSV nén gzip"),
+    PARQUET("parquet", false, "Parquet");
+
+    private final String fileExtension;
+    private final boolean compressed;
+    private final String description;
+
+    ExportFormat(String fileExtension, boolean compressed, String description) {
+        this.fileExtension = fileExtension;
+        this.compressed = compressed;
+        this.description = description;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
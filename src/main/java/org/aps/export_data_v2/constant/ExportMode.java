@@ -0,0 +1,16 @@
+package org.aps.export_data_v2.constant;
+
+public enum ExportMode {
+    FULL("Xuất toàn bộ dữ liệu"),
+    DELTA("Chỉ xuất các dòng mới hoặc thay đổi kể từ lần xuất thành công trước");
+
+    private final String description;
+
+    ExportMode(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
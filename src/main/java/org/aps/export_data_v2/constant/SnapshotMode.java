@@ -0,0 +1,16 @@
+package org.aps.export_data_v2.constant;
+
+public enum SnapshotMode {
+    HIGH_WATER_MARK("Giới hạn theo khóa lớn nhất tại thời điểm tạo job"),
+    CONSISTENT_SNAPSHOT("Đọc toàn bộ job trong một snapshot nhất quán");
+
+    private final String description;
+
+    SnapshotMode(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,16 @@
+package org.aps.export_data_v2.constant;
+
+public enum StorageSinkType {
+    LOCAL("Lưu kết quả trên hệ thống tệp (cục bộ hoặc thư mục dùng chung)"),
+    S3("Lưu kết quả trên kho đối tượng tương thích S3");
+
+    private final String description;
+
+    StorageSinkType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,16 @@
+package org.aps.export_data_v2.constant;
+
+public enum WorkbookLayout {
+    ARCHIVE("Mỗi lô là một tệp riêng trong tệp ZIP"),
+    SINGLE_WORKBOOK("Gộp tất cả các lô thành một workbook nhiều sheet");
+
+    private final String description;
+
+    WorkbookLayout(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,6 @@
+package org.aps.export_data_v2.constant;
+
+public enum XlsxEngine {
+    SXSSF,
+    STREAMING
+}
@@ -0,0 +1,48 @@
+package org.aps.export_data_v2.definition;
+
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportFilter;
+import org.aps.export_data_v2.reader.ExportRowReader;
+import org.aps.export_data_v2.writer.ExportColumn;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface ExportDefinition<R> {
+
+    String getName();
+
+    String getTitle();
+
+    String getKeyColumn();
+
+    Set<ExportFormat> getFormats();
+
+    Map<String, ExportColumn<R>> getColumnsByName();
+
+    List<ExportColumn<R>> getColumns();
+
+    ExportRowReader<R> getReader();
+
+    default boolean supportsFilter(ExportFilter filter) {
+        return filter == null || filter.isKeyRangeOnly();
+    }
+
+    default String exportType(ExportFormat format) {
+        return getName() + "_" + format.name();
+    }
+
+    default List<ExportColumn<R>> columns(List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return getColumns();
+        }
+        return names.stream().map(name -> {
+            ExportColumn<R> column = getColumnsByName().get(name);
+            if (column == null) {
+                throw new RuntimeException("Unknown export column: " + name);
+            }
+            return column;
+        }).toList();
+    }
+}
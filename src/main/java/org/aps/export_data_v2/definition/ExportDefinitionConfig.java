@@ -0,0 +1,50 @@
+package org.aps.export_data_v2.definition;
+
+import lombok.RequiredArgsConstructor;
+import org.aps.export_data_v2.reader.ShardedReadSupport;
+import org.aps.export_data_v2.reader.SnapshotSessionRegistry;
+import org.aps.export_data_v2.reader.TableRow;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@RequiredArgsConstructor
+public class ExportDefinitionConfig {
+    private final DataSource dataSource;
+    private final SnapshotSessionRegistry snapshotSessionRegistry;
+    private final ShardedReadSupport shardedReadSupport;
+
+    @Bean
+    public ExportDefinition<TableRow> employeeExportDefinition() {
+        return TableExportDefinition.builder("EMPLOYEE")
+                .title("Employee Information")
+                .source("employees")
+                .keyColumn("emp_no")
+                .integer("emp_no", "Employee ID")
+                .date("birth_date", "Birth Date")
+                .text("first_name", "First Name")
+                .text("last_name", "Last Name")
+                .text("gender", "Gender")
+                .date("hire_date", "Hire Date")
+                .versionExpression("MAX(hire_date)")
+                .changeColumns("hire_date")
+                .build(dataSource, snapshotSessionRegistry, shardedReadSupport);
+    }
+
+    @Bean
+    public ExportDefinition<TableRow> titleExportDefinition() {
+        return TableExportDefinition.builder("TITLE")
+                .title("Title History")
+                .source("titles")
+                .keyColumn("emp_no")
+                .integer("emp_no", "Employee ID")
+                .text("title", "Title")
+                .date("from_date", "From Date")
+                .date("to_date", "To Date")
+                .versionExpression("MAX(from_date)")
+                .changeColumns("from_date")
+                .build(dataSource, snapshotSessionRegistry, shardedReadSupport);
+    }
+}
@@ -0,0 +1,44 @@
+package org.aps.export_data_v2.definition;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class ExportDefinitionRegistry {
+    private final Map<String, ExportDefinition<?>> definitions = new LinkedHashMap<>();
+    private final ConcurrentMap<String, ExportDefinition<?>> definitionsByExportType = new ConcurrentHashMap<>();
+
+    public ExportDefinitionRegistry(List<ExportDefinition<?>> definitions) {
+        for (ExportDefinition<?> definition : definitions) {
+            if (this.definitions.putIfAbsent(definition.getName(), definition) != null) {
+                throw new IllegalStateException("Duplicate export definition " + definition.getName());
+            }
+        }
+    }
+
+    public Collection<ExportDefinition<?>> getDefinitions() {
+        return definitions.values();
+    }
+
+    public ExportDefinition<?> get(String name) {
+        ExportDefinition<?> definition = definitions.get(name);
+        if (definition == null) {
+            throw new RuntimeException("Export definition not found");
+        }
+        return definition;
+    }
+
+    public ExportDefinition<?> forExportType(String exportType) {
+        return definitionsByExportType.computeIfAbsent(exportType, type -> definitions.values().stream()
+                .filter(definition -> type.equals(definition.getName()) || type.startsWith(definition.getName() + "_"))
+                .max(Comparator.comparingInt(definition -> definition.getName().length()))
+                .orElseThrow(() -> new RuntimeException("Export definition not found")));
+    }
+}
@@ -0,0 +1,64 @@
+package org.aps.export_data_v2.definition;
+
+import lombok.RequiredArgsConstructor;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportFilter;
+import org.aps.export_data_v2.reader.ExportRowReader;
+import org.aps.export_data_v2.reader.SalaryRow;
+import org.aps.export_data_v2.reader.SalaryRowReader;
+import org.aps.export_data_v2.writer.ExportColumn;
+import org.aps.export_data_v2.writer.SalaryExportSchema;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+public class SalaryExportDefinition implements ExportDefinition<SalaryRow> {
+    public static final String NAME = "SALARY";
+
+    private final SalaryRowReader salaryRowReader;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getTitle() {
+        return SalaryExportSchema.TITLE;
+    }
+
+    @Override
+    public String getKeyColumn() {
+        return "emp_no";
+    }
+
+    @Override
+    public Set<ExportFormat> getFormats() {
+        return EnumSet.allOf(ExportFormat.class);
+    }
+
+    @Override
+    public Map<String, ExportColumn<SalaryRow>> getColumnsByName() {
+        return SalaryExportSchema.COLUMNS_BY_NAME;
+    }
+
+    @Override
+    public List<ExportColumn<SalaryRow>> getColumns() {
+        return SalaryExportSchema.COLUMNS;
+    }
+
+    @Override
+    public ExportRowReader<SalaryRow> getReader() {
+        return salaryRowReader;
+    }
+
+    @Override
+    public boolean supportsFilter(ExportFilter filter) {
+        return true;
+    }
+}
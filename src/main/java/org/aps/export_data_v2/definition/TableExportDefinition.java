@@ -0,0 +1,177 @@
+package org.aps.export_data_v2.definition;
+
+import org.aps.export_data_v2.constant.ColumnType;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.reader.ExportRowReader;
+import org.aps.export_data_v2.reader.ShardedReadSupport;
+import org.aps.export_data_v2.reader.SnapshotSessionRegistry;
+import org.aps.export_data_v2.reader.TableColumn;
+import org.aps.export_data_v2.reader.TableRow;
+import org.aps.export_data_v2.reader.TableRowReader;
+import org.aps.export_data_v2.writer.ExportColumn;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TableExportDefinition implements ExportDefinition<TableRow> {
+    private final String name;
+    private final String title;
+    private final String keyColumn;
+    private final Set<ExportFormat> formats;
+    private final Map<String, ExportColumn<TableRow>> columnsByName;
+    private final List<ExportColumn<TableRow>> columns;
+    private final TableRowReader reader;
+
+    private TableExportDefinition(Builder builder, TableRowReader reader) {
+        this.name = builder.name;
+        this.title = builder.title != null ? builder.title : builder.name;
+        this.keyColumn = builder.keyColumn;
+        this.formats = Collections.unmodifiableSet(builder.formats);
+        Map<String, ExportColumn<TableRow>> columnsByName = new LinkedHashMap<>();
+        for (TableColumn column : builder.columns) {
+            columnsByName.put(column.name(), exportColumn(column));
+        }
+        this.columnsByName = Collections.unmodifiableMap(columnsByName);
+        this.columns = List.copyOf(columnsByName.values());
+        this.reader = reader;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    @Override
+    public Set<ExportFormat> getFormats() {
+        return formats;
+    }
+
+    @Override
+    public Map<String, ExportColumn<TableRow>> getColumnsByName() {
+        return columnsByName;
+    }
+
+    @Override
+    public List<ExportColumn<TableRow>> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public ExportRowReader<TableRow> getReader() {
+        return reader;
+    }
+
+    private static ExportColumn<TableRow> exportColumn(TableColumn column) {
+        int slot = column.slot();
+        return switch (column.type()) {
+            case INTEGER -> ExportColumn.integer(column.header(), row -> row.getInt(slot));
+            case NUMERIC -> ExportColumn.numeric(column.header(), row -> row.getDouble(slot));
+            case DATE -> ExportColumn.date(column.header(), row -> row.getInt(slot));
+            case TEXT -> ExportColumn.text(column.header(), row -> row.getText(slot));
+        };
+    }
+
+    public static final class Builder {
+        private final String name;
+        private final List<TableColumn> columns = new ArrayList<>();
+        private final List<String> changeColumns = new ArrayList<>();
+        private Set<ExportFormat> formats = EnumSet.allOf(ExportFormat.class);
+        private String title;
+        private String source;
+        private String keyColumn;
+        private String versionExpression;
+        private int intSlots;
+        private int doubleSlots;
+        private int textSlots;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder title(String title) {
+            this.title = title;
+            return this;
+        }
+
+        public Builder source(String source) {
+            this.source = source;
+            return this;
+        }
+
+        public Builder keyColumn(String keyColumn) {
+            this.keyColumn = keyColumn;
+            return this;
+        }
+
+        public Builder formats(ExportFormat first, ExportFormat... rest) {
+            this.formats = EnumSet.of(first, rest);
+            return this;
+        }
+
+        public Builder versionExpression(String versionExpression) {
+            this.versionExpression = versionExpression;
+            return this;
+        }
+
+        public Builder changeColumns(String... changeColumns) {
+            this.changeColumns.addAll(List.of(changeColumns));
+            return this;
+        }
+
+        public Builder integer(String name, String header) {
+            return column(name, header, ColumnType.INTEGER, name);
+        }
+
+        public Builder numeric(String name, String header) {
+            return column(name, header, ColumnType.NUMERIC, name);
+        }
+
+        public Builder date(String name, String header) {
+            return column(name, header, ColumnType.DATE, name);
+        }
+
+        public Builder text(String name, String header) {
+            return column(name, header, ColumnType.TEXT, name);
+        }
+
+        public Builder column(String name, String header, ColumnType type, String expression) {
+            int slot = switch (type) {
+                case INTEGER, DATE -> intSlots++;
+                case NUMERIC -> doubleSlots++;
+                case TEXT -> textSlots++;
+            };
+            columns.add(new TableColumn(name, header, type, expression, slot));
+            return this;
+        }
+
+        public TableExportDefinition build(DataSource dataSource, SnapshotSessionRegistry snapshotSessionRegistry,
+                                           ShardedReadSupport shardedReadSupport) {
+            if (source == null || keyColumn == null || columns.isEmpty()) {
+                throw new IllegalStateException("Export definition " + name + " needs a source, key column and columns");
+            }
+            TableRowReader reader = new TableRowReader(dataSource, snapshotSessionRegistry, shardedReadSupport,
+                    source, keyColumn, columns, versionExpression, changeColumns);
+            return new TableExportDefinition(this, reader);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.aps.export_data_v2.entity;
+
+import lombok.*;
+import org.aps.export_data_v2.archive.ZipEntryInfo;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivePart {
+    private String objectKey;
+
+    private long length;
+
+    private String entryName;
+
+    private int method;
+
+    private int flags;
+
+    private long crc32;
+
+    private long compressedSize;
+
+    private long size;
+
+    private boolean zip64;
+
+    private int dosTime;
+
+    public static ArchivePart of(String objectKey, long length, ZipEntryInfo entry) {
+        return ArchivePart.builder()
+                .objectKey(objectKey)
+                .length(length)
+                .entryName(entry.name())
+                .method(entry.method())
+                .flags(entry.flags())
+                .crc32(entry.crc32())
+                .compressedSize(entry.compressedSize())
+                .size(entry.size())
+                .zip64(entry.zip64())
+                .dosTime(entry.dosTime())
+                .build();
+    }
+
+    public ZipEntryInfo entryAt(long offset) {
+        return new ZipEntryInfo(entryName, method, flags, crc32, compressedSize, size, zip64, dosTime, offset);
+    }
+}
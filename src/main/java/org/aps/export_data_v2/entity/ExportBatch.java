@@ -12,11 +12,18 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "export_batches")
+@Table(name = "export_batches", indexes = {
+        @Index(name = "idx_export_batches_range", columnList = "start_key, end_key"),
+        @Index(name = "idx_export_batches_lease", columnList = "job_id, status, lease_expires_at"),
+        @Index(name = "idx_export_batches_status_processed", columnList = "status, last_processed_at")
+})
 public class ExportBatch {
+    public static final int ID_ALLOCATION_SIZE = 100;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "export_batch_id")
+    @TableGenerator(name = "export_batch_id", table = "export_id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "export_batches", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "batch_unique_id", unique = true, nullable = false)
@@ -35,6 +42,21 @@ public class ExportBatch {
     @Column(name = "end_offset")
     private Integer endOffset;
 
+    @Column(name = "start_key")
+    private Integer startKey;
+
+    @Column(name = "end_key")
+    private Integer endKey;
+
+    @Column(name = "planned_rows")
+    private Integer plannedRows;
+
+    @Column(name = "row_count")
+    private Integer rowCount;
+
+    @Column(name = "duration_millis")
+    private Long durationMillis;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status")
     private BatchStatus status;
@@ -51,6 +73,43 @@ public class ExportBatch {
     @Column(name = "partial_file_path")
     private String partialFilePath;
 
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "file_crc32")
+    private Long fileCrc32;
+
+    @Column(name = "fetch_millis")
+    private Long fetchMillis;
+
+    @Column(name = "encode_millis")
+    private Long encodeMillis;
+
+    @Column(name = "write_millis")
+    private Long writeMillis;
+
+    @Column(name = "range_fingerprint", length = 64)
+    private String rangeFingerprint;
+
+    @Column(name = "reused_from_batch_id")
+    private Long reusedFromBatchId;
+
+    @Column(name = "lease_owner", length = 128)
+    private String leaseOwner;
+
+    @Column(name = "lease_token", length = 36)
+    private String leaseToken;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Convert(converter = ArchivePartConverter.class)
+    @Column(name = "archive_part", columnDefinition = "TEXT")
+    private ArchivePart archivePart;
+
     @PrePersist
     public void prePersist() {
         this.status = BatchStatus.PENDING;
@@ -0,0 +1,50 @@
+package org.aps.export_data_v2.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportFilter {
+    private Integer minEmpNo;
+
+    private Integer maxEmpNo;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate minFromDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate maxFromDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate minToDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate maxToDate;
+
+    private Integer minSalary;
+
+    private Integer maxSalary;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return minEmpNo == null && maxEmpNo == null && minFromDate == null && maxFromDate == null
+                && minToDate == null && maxToDate == null && minSalary == null && maxSalary == null;
+    }
+
+    @JsonIgnore
+    public boolean isKeyRangeOnly() {
+        return minFromDate == null && maxFromDate == null && minToDate == null && maxToDate == null
+                && minSalary == null && maxSalary == null;
+    }
+}
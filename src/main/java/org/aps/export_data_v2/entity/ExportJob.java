@@ -2,6 +2,7 @@ package org.aps.export_data_v2.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.aps.export_data_v2.constant.ExportFormat;
 import org.aps.export_data_v2.constant.ExportStatus;
 
 import java.time.LocalDateTime;
@@ -14,7 +15,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "export_jobs")
+@Table(name = "export_jobs", indexes = {
+        @Index(name = "idx_export_jobs_cache_key", columnList = "cache_key"),
+        @Index(name = "idx_export_jobs_status_completed", columnList = "status, completed_at")
+})
 public class ExportJob {
 
     @Id
@@ -30,8 +34,13 @@ public class ExportJob {
     @Column(name = "export_type")
     private String exportType;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "export_format")
+    private ExportFormat exportFormat;
+
+    @Convert(converter = ExportJobParametersConverter.class)
     @Column(name = "parameters", columnDefinition = "TEXT")
-    private String parameters;
+    private ExportJobParameters parameters;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -52,16 +61,57 @@ public class ExportJob {
     @Column(name = "processed_batches")
     private Integer processedBatches;
 
+    @Column(name = "failed_batches")
+    private Integer failedBatches;
+
     @Column(name = "total_records")
     private Integer totalRecords;
 
+    @Column(name = "next_start_key")
+    private Integer nextStartKey;
+
+    @Column(name = "max_key")
+    private Integer maxKey;
+
+    @Column(name = "planning_complete")
+    private Boolean planningComplete;
+
+    @Column(name = "initial_batch_size")
+    private Integer initialBatchSize;
+
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+
+    @Column(name = "last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+
+    @Column(name = "evicted_at")
+    private LocalDateTime evictedAt;
+
+    @Column(name = "storage_bytes")
+    private Long storageBytes;
+
+    @Column(name = "reserved_bytes")
+    private Long reservedBytes;
+
+    @Column(name = "storage_url", length = 1024)
+    private String storageUrl;
+
+    @Transient
+    private boolean cacheHit;
+
     @OneToMany(mappedBy = "exportJob", cascade = CascadeType.ALL)
     private List<ExportBatch> batches = new ArrayList<>();
 
+    public ExportFormat resolveExportFormat() {
+        return exportFormat != null ? exportFormat : ExportFormat.EXCEL;
+    }
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
         this.status = ExportStatus.PENDING;
         this.processedBatches = 0;
+        this.failedBatches = 0;
     }
 }
\ No newline at end of file
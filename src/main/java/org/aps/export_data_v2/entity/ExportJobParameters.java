@@ -0,0 +1,68 @@
+package org.aps.export_data_v2.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import org.aps.export_data_v2.constant.ExportMode;
+import org.aps.export_data_v2.constant.SnapshotMode;
+import org.aps.export_data_v2.constant.WorkbookLayout;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportJobParameters {
+    private SnapshotMode snapshotMode;
+
+    private LocalDateTime snapshotAt;
+
+    private Integer lowWaterKey;
+
+    private Integer highWaterKey;
+
+    private Long snapshotRecords;
+
+    private LocalDateTime snapshotLostAt;
+
+    private ExportMode exportMode;
+
+    private String baseJobUniqueId;
+
+    private Integer sinceKey;
+
+    private LocalDate sinceDate;
+
+    private Boolean mergeWithBase;
+
+    private String snapshotEntry;
+
+    private ExportFilter filter;
+
+    private List<String> columns;
+
+    private WorkbookLayout workbookLayout;
+
+    @JsonIgnore
+    public boolean isDelta() {
+        return exportMode == ExportMode.DELTA;
+    }
+
+    @JsonIgnore
+    public boolean isSingleWorkbook() {
+        return workbookLayout == WorkbookLayout.SINGLE_WORKBOOK;
+    }
+
+    public boolean hasWatermark() {
+        return highWaterKey != null && snapshotAt != null;
+    }
+
+    public boolean containsFullSnapshot() {
+        return !isDelta() || snapshotEntry != null;
+    }
+}
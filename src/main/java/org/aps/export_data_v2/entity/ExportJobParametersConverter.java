@@ -0,0 +1,41 @@
+package org.aps.export_data_v2.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class ExportJobParametersConverter implements AttributeConverter<ExportJobParameters, String> {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @Override
+    public String convertToDatabaseColumn(ExportJobParameters parameters) {
+        if (parameters == null) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(parameters);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize export job parameters", e);
+        }
+    }
+
+    @Override
+    public ExportJobParameters convertToEntityAttribute(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(json, ExportJobParameters.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not read export job parameters", e);
+        }
+    }
+}
@@ -14,7 +14,11 @@ import java.util.Date;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "salaries")
+// ddl-auto=update adds these indexes with an ALTER of the whole salaries table on the first start after upgrading.
+@Table(name = "salaries", indexes = {
+        @Index(name = "idx_salaries_from_date", columnList = "from_date"),
+        @Index(name = "idx_salaries_to_date", columnList = "to_date")
+})
 public class Salary {
     @Id
     @Column(name = "emp_no")
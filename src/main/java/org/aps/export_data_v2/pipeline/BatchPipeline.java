@@ -0,0 +1,138 @@
+package org.aps.export_data_v2.pipeline;
+
+import org.aps.export_data_v2.reader.RowChunk;
+import org.aps.export_data_v2.reader.RowCursor;
+import org.aps.export_data_v2.writer.BatchFileWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+public class BatchPipeline<R> {
+    private final Supplier<R> rowFactory;
+    private final int chunkSize;
+    private final int depth;
+    private final Executor encodingExecutor;
+
+    public BatchPipeline(Supplier<R> rowFactory, int chunkSize, int depth, Executor encodingExecutor) {
+        this.rowFactory = rowFactory;
+        this.chunkSize = chunkSize;
+        this.depth = depth;
+        this.encodingExecutor = encodingExecutor;
+    }
+
+    public int run(RowCursor<R> cursor, BatchFileWriter<R> writer, StageTimings timings)
+            throws SQLException, IOException {
+        BlockingQueue<RowChunk<R>> freeChunks = new ArrayBlockingQueue<>(depth);
+        for (int i = 0; i < depth; i++) {
+            freeChunks.add(new RowChunk<>(rowFactory, chunkSize));
+        }
+
+        AtomicBoolean writerClosed = new AtomicBoolean();
+        CompletableFuture<Void> encoded = CompletableFuture.completedFuture(null);
+        try {
+            boolean more = true;
+            while (more) {
+                RowChunk<R> chunk = takeFreeChunk(freeChunks, encoded);
+                long startNanos = System.nanoTime();
+                more = chunk.fill(cursor);
+                timings.addFetch(System.nanoTime() - startNanos);
+
+                encoded = encoded.thenRunAsync(() -> {
+                    encode(chunk, writer, timings);
+                    freeChunks.add(chunk);
+                }, encodingExecutor);
+            }
+
+            encoded = encoded.thenRunAsync(() -> {
+                long startNanos = System.nanoTime();
+                writerClosed.set(true);
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    timings.addEncode(System.nanoTime() - startNanos);
+                }
+            }, encodingExecutor);
+            await(encoded);
+        } finally {
+            awaitQuietly(encoded);
+            if (!writerClosed.get()) {
+                closeQuietly(writer);
+            }
+        }
+
+        return writer.getRowCount();
+    }
+
+    private RowChunk<R> takeFreeChunk(BlockingQueue<RowChunk<R>> freeChunks, CompletableFuture<Void> encoded)
+            throws IOException {
+        try {
+            RowChunk<R> chunk;
+            while ((chunk = freeChunks.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                if (encoded.isCompletedExceptionally()) {
+                    await(encoded);
+                }
+            }
+            return chunk;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the encoder");
+        }
+    }
+
+    private static <R> void encode(RowChunk<R> chunk, BatchFileWriter<R> writer, StageTimings timings) {
+        long startNanos = System.nanoTime();
+        try {
+            for (int i = 0; i < chunk.size(); i++) {
+                writer.writeRow(chunk.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            timings.addEncode(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding rows");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw new IOException("Error encoding rows", cause);
+        }
+    }
+
+    private static void awaitQuietly(CompletableFuture<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+        }
+    }
+
+    private static void closeQuietly(BatchFileWriter<?> writer) {
+        try {
+            writer.close();
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+}
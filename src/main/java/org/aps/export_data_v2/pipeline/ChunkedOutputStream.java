@@ -0,0 +1,133 @@
+package org.aps.export_data_v2.pipeline;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class ChunkedOutputStream extends OutputStream {
+    private static final Segment END = new Segment(null, 0);
+
+    private final OutputStream target;
+    private final StageTimings timings;
+    private final BlockingQueue<Segment> filled;
+    private final BlockingQueue<byte[]> free;
+    private final Thread writerThread;
+    private volatile IOException failure;
+    private byte[] buffer;
+    private int position;
+    private boolean closed;
+
+    public ChunkedOutputStream(OutputStream target, int bufferSize, int depth, StageTimings timings) {
+        this.target = target;
+        this.timings = timings;
+        this.filled = new ArrayBlockingQueue<>(depth + 1);
+        this.free = new ArrayBlockingQueue<>(depth);
+        for (int i = 1; i < depth; i++) {
+            free.add(new byte[bufferSize]);
+        }
+        this.buffer = new byte[bufferSize];
+        this.writerThread = Thread.ofVirtual().name("Export-Write").start(this::drain);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position == buffer.length) {
+            handOff();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                handOff();
+            }
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        long startNanos = System.nanoTime();
+        try {
+            if (position > 0) {
+                filled.put(new Segment(buffer, position));
+            }
+            filled.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerThread.interrupt();
+            throw new InterruptedIOException("Interrupted while writing export file");
+        } finally {
+            timings.addEncodeStall(System.nanoTime() - startNanos);
+        }
+        checkFailure();
+    }
+
+    private void handOff() throws IOException {
+        checkFailure();
+        long startNanos = System.nanoTime();
+        try {
+            filled.put(new Segment(buffer, position));
+            buffer = free.take();
+            position = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing export file");
+        } finally {
+            timings.addEncodeStall(System.nanoTime() - startNanos);
+        }
+    }
+
+    private void drain() {
+        try (target) {
+            while (true) {
+                Segment segment = filled.take();
+                if (segment == END) {
+                    break;
+                }
+                if (failure == null) {
+                    long startNanos = System.nanoTime();
+                    try {
+                        target.write(segment.data, 0, segment.length);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                    timings.addWrite(System.nanoTime() - startNanos);
+                }
+                free.offer(segment.data);
+            }
+            long startNanos = System.nanoTime();
+            target.flush();
+            timings.addWrite(System.nanoTime() - startNanos);
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Interrupted while writing export file");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private record Segment(byte[] data, int length) {
+    }
+}
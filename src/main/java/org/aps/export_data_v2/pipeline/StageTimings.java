@@ -0,0 +1,39 @@
+package org.aps.export_data_v2.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StageTimings {
+    private final AtomicLong fetchNanos = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private final AtomicLong encodeStallNanos = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    public void addFetch(long nanos) {
+        fetchNanos.addAndGet(nanos);
+    }
+
+    public void addEncode(long nanos) {
+        encodeNanos.addAndGet(nanos);
+    }
+
+    public void addEncodeStall(long nanos) {
+        encodeStallNanos.addAndGet(nanos);
+    }
+
+    public void addWrite(long nanos) {
+        writeNanos.addAndGet(nanos);
+    }
+
+    public long getFetchMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(fetchNanos.get());
+    }
+
+    public long getEncodeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, encodeNanos.get() - encodeStallNanos.get()));
+    }
+
+    public long getWriteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(writeNanos.get());
+    }
+}
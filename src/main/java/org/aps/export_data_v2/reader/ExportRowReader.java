@@ -0,0 +1,20 @@
+package org.aps.export_data_v2.reader;
+
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.entity.ExportJobParameters;
+
+import java.sql.SQLException;
+
+public interface ExportRowReader<R> {
+
+    R newRow();
+
+    RowCursor<R> open(ExportBatch batch) throws SQLException;
+
+    String readFingerprint(ExportBatch batch) throws SQLException;
+
+    Integer findBoundaryKey(ExportJob job, int afterKey, int step) throws SQLException;
+
+    KeyBounds readBounds(SnapshotSession session, ExportJobParameters parameters) throws SQLException;
+}
@@ -0,0 +1,84 @@
+package org.aps.export_data_v2.reader;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class JdbcRowCursor<R> implements RowCursor<R> {
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final ConnectionRelease release;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final ResultSetRowMapper<R> mapper;
+
+    private JdbcRowCursor(ConnectionRelease release, PreparedStatement statement, ResultSet resultSet,
+                          ResultSetRowMapper<R> mapper) {
+        this.release = release;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+    }
+
+    public static <R> JdbcRowCursor<R> open(DataSource dataSource, String sql, ResultSetRowMapper<R> mapper,
+                                            Object... parameters) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        return open(connection, connection::close, sql, mapper, parameters);
+    }
+
+    public static <R> JdbcRowCursor<R> open(Connection connection, ConnectionRelease release, String sql,
+                                            ResultSetRowMapper<R> mapper, Object... parameters) throws SQLException {
+        PreparedStatement statement;
+        try {
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        } catch (SQLException | RuntimeException e) {
+            release.release();
+            throw e;
+        }
+
+        try {
+            statement.setFetchSize(MYSQL_STREAMING_FETCH_SIZE);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return new JdbcRowCursor<>(release, statement, statement.executeQuery(), mapper);
+        } catch (SQLException | RuntimeException e) {
+            try (statement) {
+            } finally {
+                release.release();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next(R row) throws SQLException {
+        if (!resultSet.next()) {
+            return false;
+        }
+        mapper.map(resultSet, row);
+        return true;
+    }
+
+    // Stops a streaming read from another thread without breaking the connection it holds.
+    @Override
+    public void cancel() throws SQLException {
+        if (!statement.isClosed()) {
+            statement.cancel();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (statement; resultSet) {
+        } finally {
+            release.release();
+        }
+    }
+
+    public interface ConnectionRelease {
+        void release() throws SQLException;
+    }
+}
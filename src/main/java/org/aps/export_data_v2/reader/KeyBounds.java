@@ -0,0 +1,6 @@
+package org.aps.export_data_v2.reader;
+
+import java.time.LocalDate;
+
+public record KeyBounds(Integer minKey, Integer maxKey, long rowCount, LocalDate latestChangeDate, String checksum) {
+}
@@ -0,0 +1,206 @@
+package org.aps.export_data_v2.reader;
+
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportFilter;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.entity.ExportJobParameters;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class KeyRangeRowReader<R> implements ExportRowReader<R> {
+    private final DataSource dataSource;
+    private final SnapshotSessionRegistry snapshotSessionRegistry;
+    private final ShardedReadSupport shardedReadSupport;
+
+    protected KeyRangeRowReader(DataSource dataSource, SnapshotSessionRegistry snapshotSessionRegistry,
+                                ShardedReadSupport shardedReadSupport) {
+        this.dataSource = dataSource;
+        this.snapshotSessionRegistry = snapshotSessionRegistry;
+        this.shardedReadSupport = shardedReadSupport;
+    }
+
+    protected abstract String source();
+
+    protected abstract String keyColumn();
+
+    protected abstract List<String> columnNames();
+
+    protected abstract String columnExpression(String column);
+
+    protected abstract String selectList(List<String> columns);
+
+    protected abstract ResultSetRowMapper<R> mapper();
+
+    protected abstract void copyRow(R target, R source);
+
+    protected abstract String versionExpression();
+
+    protected abstract String changedKeysSql();
+
+    protected abstract int changedKeysDateParameters();
+
+    protected abstract void filterConditions(ExportFilter filter, StringBuilder sql, List<Object> queryParameters);
+
+    @Override
+    public RowCursor<R> open(ExportBatch batch) throws SQLException {
+        ExportJob job = batch.getExportJob();
+        ExportJobParameters parameters = job.getParameters();
+        List<Object> conditionParameters = new ArrayList<>();
+        String conditions = conditions(parameters, conditionParameters);
+        String select = "SELECT " + selectList(parameters != null ? parameters.getColumns() : null) + " FROM " + source();
+        String key = keyColumn();
+
+        if (batch.getEndKey() == null) {
+            conditionParameters.add(batch.getEndOffset() - batch.getStartOffset());
+            conditionParameters.add(batch.getStartOffset());
+            return JdbcRowCursor.open(dataSource, select + " WHERE 1 = 1" + conditions
+                    + " ORDER BY " + key + " LIMIT ? OFFSET ?", mapper(), conditionParameters.toArray());
+        }
+
+        String sql = select + " WHERE " + key + " > ? AND " + key + " <= ?" + conditions + " ORDER BY " + key;
+        SnapshotSession session = snapshotSessionRegistry.sessionFor(job);
+        if (session != null) {
+            return session.query(sql, mapper(), keyRange(batch.getStartKey(), batch.getEndKey(), conditionParameters));
+        }
+        if (parameters != null && parameters.isDelta()) {
+            return JdbcRowCursor.open(dataSource, sql, mapper(),
+                    keyRange(batch.getStartKey(), batch.getEndKey(), conditionParameters));
+        }
+        return shardedReadSupport.open(job.getExportType(), batch.getStartKey(), batch.getEndKey(),
+                (startKey, endKey) -> JdbcRowCursor.open(dataSource, sql, mapper(),
+                        keyRange(startKey, endKey, conditionParameters)),
+                this::newRow, this::copyRow);
+    }
+
+    @Override
+    public String readFingerprint(ExportBatch batch) throws SQLException {
+        ExportJobParameters parameters = batch.getExportJob().getParameters();
+        if (batch.getEndKey() == null || (parameters != null && parameters.isDelta())) {
+            return null;
+        }
+
+        List<String> columns = parameters != null && parameters.getColumns() != null
+                ? parameters.getColumns().stream().filter(columnNames()::contains).toList() : columnNames();
+        List<Object> conditionParameters = new ArrayList<>();
+        String rowHash = rowHashExpression(columns.stream().map(this::columnExpression).toList());
+        String sql = "SELECT COUNT(*), SUM(" + rowHash + "), BIT_XOR(" + rowHash + ") "
+                + "FROM " + source() + " WHERE " + keyColumn() + " > ? AND " + keyColumn() + " <= ?"
+                + conditions(parameters, conditionParameters);
+        Object[] queryParameters = keyRange(batch.getStartKey(), batch.getEndKey(), conditionParameters);
+
+        ResultSetRowMapper<Object[]> mapper = (resultSet, row) -> {
+            row[0] = resultSet.getLong(1);
+            row[1] = resultSet.getBigDecimal(2);
+            row[2] = resultSet.getBigDecimal(3);
+        };
+        SnapshotSession session = snapshotSessionRegistry.sessionFor(batch.getExportJob());
+        Object[] aggregates = new Object[3];
+        try (RowCursor<Object[]> cursor = session != null
+                ? session.query(sql, mapper, queryParameters)
+                : JdbcRowCursor.open(dataSource, sql, mapper, queryParameters)) {
+            cursor.next(aggregates);
+        }
+        return fingerprint((Long) aggregates[0], (BigDecimal) aggregates[1], (BigDecimal) aggregates[2], columns);
+    }
+
+    // CRC32 is linear, so XOR-ing it over rows cancels out swaps of equal-length values between rows.
+    // An MD5 prefix is not, and aggregating it with both SUM and BIT_XOR keeps the result order independent.
+    static String rowHashExpression(List<String> columnExpressions) {
+        return "CAST(CONV(LEFT(MD5(CONCAT_WS(',', "
+                + String.join(", ", columnExpressions.stream().map(expression -> "QUOTE(" + expression + ")").toList())
+                + ")), 16), 16, 10) AS UNSIGNED)";
+    }
+
+    static String fingerprint(long count, BigDecimal sum, BigDecimal xor, List<String> columns) {
+        return count + "-" + hex(sum) + "-" + hex(xor) + "-" + Integer.toHexString(columns.hashCode());
+    }
+
+    private static String hex(BigDecimal value) {
+        return value != null ? value.toBigInteger().toString(16) : "0";
+    }
+
+    @Override
+    public Integer findBoundaryKey(ExportJob job, int afterKey, int step) throws SQLException {
+        List<Object> queryParameters = new ArrayList<>();
+        queryParameters.add(afterKey);
+        String sql = "SELECT " + keyColumn() + " FROM " + source() + " WHERE " + keyColumn() + " > ?"
+                + conditions(job.getParameters(), queryParameters) + " ORDER BY " + keyColumn() + " LIMIT 1 OFFSET ?";
+        queryParameters.add(step);
+
+        Integer[] boundary = new Integer[1];
+        try (RowCursor<Integer[]> cursor = JdbcRowCursor.open(dataSource, sql,
+                (resultSet, row) -> row[0] = resultSet.getInt(1), queryParameters.toArray())) {
+            return cursor.next(boundary) ? boundary[0] : null;
+        }
+    }
+
+    @Override
+    public KeyBounds readBounds(SnapshotSession session, ExportJobParameters parameters) throws SQLException {
+        List<Object> queryParameters = new ArrayList<>();
+        String key = keyColumn();
+        // The version expression misses in-place updates, so the bounds also carry a checksum of every row.
+        String rowHash = rowHashExpression(columnNames().stream().map(this::columnExpression).toList());
+        String sql = "SELECT MIN(" + key + "), MAX(" + key + "), COUNT(*), " + versionExpression()
+                + ", SUM(" + rowHash + "), BIT_XOR(" + rowHash + ")"
+                + " FROM " + source() + " WHERE 1 = 1" + conditions(parameters, queryParameters);
+
+        Object[] bounds = new Object[6];
+        try (RowCursor<Object[]> cursor = session.query(sql, (resultSet, row) -> {
+            row[0] = resultSet.getObject(1, Integer.class);
+            row[1] = resultSet.getObject(2, Integer.class);
+            row[2] = resultSet.getLong(3);
+            row[3] = resultSet.getObject(4, LocalDate.class);
+            row[4] = resultSet.getBigDecimal(5);
+            row[5] = resultSet.getBigDecimal(6);
+        }, queryParameters.toArray())) {
+            cursor.next(bounds);
+        }
+        return new KeyBounds((Integer) bounds[0], (Integer) bounds[1], (Long) bounds[2], (LocalDate) bounds[3],
+                fingerprint((Long) bounds[2], (BigDecimal) bounds[4], (BigDecimal) bounds[5], columnNames()));
+    }
+
+    private String conditions(ExportJobParameters parameters, List<Object> queryParameters) {
+        if (parameters == null) {
+            return "";
+        }
+
+        StringBuilder sql = new StringBuilder();
+        if (parameters.isDelta()) {
+            sql.append(" AND ").append(keyColumn()).append(" IN (").append(changedKeysSql()).append(")");
+            queryParameters.add(parameters.getSinceKey());
+            for (int i = 0; i < changedKeysDateParameters(); i++) {
+                queryParameters.add(parameters.getSinceDate());
+            }
+        }
+
+        ExportFilter filter = parameters.getFilter();
+        if (filter != null) {
+            condition(sql, queryParameters, keyColumn() + " >= ?", filter.getMinEmpNo());
+            condition(sql, queryParameters, keyColumn() + " <= ?", filter.getMaxEmpNo());
+            filterConditions(filter, sql, queryParameters);
+        }
+        return sql.toString();
+    }
+
+    protected static void condition(StringBuilder sql, List<Object> queryParameters, String predicate, Object value) {
+        if (value != null) {
+            sql.append(" AND ").append(predicate);
+            queryParameters.add(value);
+        }
+    }
+
+    private static Object[] keyRange(int startKey, int endKey, List<Object> conditionParameters) {
+        Object[] queryParameters = new Object[conditionParameters.size() + 2];
+        queryParameters[0] = startKey;
+        queryParameters[1] = endKey;
+        for (int i = 0; i < conditionParameters.size(); i++) {
+            queryParameters[i + 2] = conditionParameters.get(i);
+        }
+        return queryParameters;
+    }
+}
@@ -0,0 +1,10 @@
+package org.aps.export_data_v2.reader;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ResultSetRowMapper<R> {
+
+    void map(ResultSet resultSet, R row) throws SQLException;
+}
@@ -0,0 +1,34 @@
+package org.aps.export_data_v2.reader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class RowChunk<R> {
+    private final List<R> rows;
+    private int size;
+
+    public RowChunk(Supplier<R> rowFactory, int capacity) {
+        this.rows = new ArrayList<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            rows.add(rowFactory.get());
+        }
+    }
+
+    public boolean fill(RowCursor<R> cursor) throws SQLException {
+        size = 0;
+        while (size < rows.size() && cursor.next(rows.get(size))) {
+            size++;
+        }
+        return size == rows.size();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public R get(int index) {
+        return rows.get(index);
+    }
+}
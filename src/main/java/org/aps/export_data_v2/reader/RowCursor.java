@@ -0,0 +1,14 @@
+package org.aps.export_data_v2.reader;
+
+import java.sql.SQLException;
+
+public interface RowCursor<R> extends AutoCloseable {
+
+    boolean next(R row) throws SQLException;
+
+    default void cancel() throws SQLException {
+    }
+
+    @Override
+    void close() throws SQLException;
+}
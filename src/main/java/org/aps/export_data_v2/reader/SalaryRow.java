@@ -0,0 +1,20 @@
+package org.aps.export_data_v2.reader;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SalaryRow {
+    private int empNo;
+    private int salary;
+    private int fromDateEpochDay;
+    private int toDateEpochDay;
+
+    public void copyFrom(SalaryRow other) {
+        this.empNo = other.empNo;
+        this.salary = other.salary;
+        this.fromDateEpochDay = other.fromDateEpochDay;
+        this.toDateEpochDay = other.toDateEpochDay;
+    }
+}
@@ -0,0 +1,101 @@
+package org.aps.export_data_v2.reader;
+
+import org.aps.export_data_v2.entity.ExportFilter;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Component
+public class SalaryRowReader extends KeyRangeRowReader<SalaryRow> {
+    private static final List<String> COLUMN_NAMES = List.of("emp_no", "salary", "from_date", "to_date");
+    private static final List<String> COLUMN_EXPRESSIONS = List.of("emp_no", "salary",
+            "DATEDIFF(from_date, '1970-01-01')", "DATEDIFF(to_date, '1970-01-01')");
+    private static final String CHANGED_EMPLOYEES_SQL = "SELECT emp_no FROM salaries WHERE emp_no > ? "
+            + "OR from_date >= ? OR (to_date >= ? AND to_date < '9999-01-01')";
+
+    private static final ResultSetRowMapper<SalaryRow> MAPPER = (resultSet, row) -> {
+        row.setEmpNo(resultSet.getInt(1));
+        row.setSalary(resultSet.getInt(2));
+        row.setFromDateEpochDay(resultSet.getInt(3));
+        row.setToDateEpochDay(resultSet.getInt(4));
+    };
+
+    public SalaryRowReader(DataSource dataSource, SnapshotSessionRegistry snapshotSessionRegistry,
+                           ShardedReadSupport shardedReadSupport) {
+        super(dataSource, snapshotSessionRegistry, shardedReadSupport);
+    }
+
+    @Override
+    public SalaryRow newRow() {
+        return new SalaryRow();
+    }
+
+    @Override
+    protected String source() {
+        return "salaries";
+    }
+
+    @Override
+    protected String keyColumn() {
+        return "emp_no";
+    }
+
+    @Override
+    protected List<String> columnNames() {
+        return COLUMN_NAMES;
+    }
+
+    @Override
+    protected String columnExpression(String column) {
+        return column;
+    }
+
+    @Override
+    protected String selectList(List<String> columns) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < COLUMN_NAMES.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            boolean projected = i == 0 || columns == null || columns.contains(COLUMN_NAMES.get(i));
+            sql.append(projected ? COLUMN_EXPRESSIONS.get(i) : "0");
+        }
+        return sql.toString();
+    }
+
+    @Override
+    protected ResultSetRowMapper<SalaryRow> mapper() {
+        return MAPPER;
+    }
+
+    @Override
+    protected void copyRow(SalaryRow target, SalaryRow source) {
+        target.copyFrom(source);
+    }
+
+    @Override
+    protected String versionExpression() {
+        return "MAX(from_date)";
+    }
+
+    @Override
+    protected String changedKeysSql() {
+        return CHANGED_EMPLOYEES_SQL;
+    }
+
+    @Override
+    protected int changedKeysDateParameters() {
+        return 2;
+    }
+
+    @Override
+    protected void filterConditions(ExportFilter filter, StringBuilder sql, List<Object> queryParameters) {
+        condition(sql, queryParameters, "from_date >= ?", filter.getMinFromDate());
+        condition(sql, queryParameters, "from_date <= ?", filter.getMaxFromDate());
+        condition(sql, queryParameters, "to_date >= ?", filter.getMinToDate());
+        condition(sql, queryParameters, "to_date <= ?", filter.getMaxToDate());
+        condition(sql, queryParameters, "salary >= ?", filter.getMinSalary());
+        condition(sql, queryParameters, "salary <= ?", filter.getMaxSalary());
+    }
+}
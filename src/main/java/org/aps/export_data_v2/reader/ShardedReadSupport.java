@@ -0,0 +1,93 @@
+package org.aps.export_data_v2.reader;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShardedReadSupport {
+    private final Environment environment;
+
+    @Value("${app.export.shards:1}")
+    private int DEFAULT_SHARDS;
+
+    @Value("${app.export.shard.chunk-size:4096}")
+    private int SHARD_CHUNK_SIZE;
+
+    @Value("${app.export.shard.max-buffered-rows:1048576}")
+    private int MAX_BUFFERED_ROWS;
+
+    @Value("${app.export.shard.max-connections:4}")
+    private int SHARD_CONNECTIONS;
+
+    private Semaphore shardConnections;
+
+    @PostConstruct
+    public void init() {
+        shardConnections = new Semaphore(Math.max(0, SHARD_CONNECTIONS));
+        log.info("Shard readers may use {} extra connections", SHARD_CONNECTIONS);
+    }
+
+    public int getShardConnections() {
+        return Math.max(0, SHARD_CONNECTIONS);
+    }
+
+    public int shardCount(String exportType) {
+        return Math.max(1, environment.getProperty("app.export.shards." + exportType, Integer.class, DEFAULT_SHARDS));
+    }
+
+    public <R> RowCursor<R> open(String exportType, int startKey, int endKey, ShardOpener<R> opener,
+                                 Supplier<R> rowFactory, BiConsumer<R, R> copier) throws SQLException {
+        int wanted = Math.min(shardCount(exportType), Math.max(1, endKey - startKey));
+        int extraConnections = 0;
+        while (extraConnections < wanted - 1 && shardConnections.tryAcquire()) {
+            extraConnections++;
+        }
+        if (extraConnections == 0) {
+            return opener.open(startKey, endKey);
+        }
+
+        int shards = extraConnections + 1;
+        int released = extraConnections;
+        List<RowCursor<R>> cursors = new ArrayList<>(shards);
+        try {
+            long span = (long) endKey - startKey;
+            int shardStart = startKey;
+            for (int i = 1; i <= shards; i++) {
+                int shardEnd = i == shards ? endKey : (int) (startKey + span * i / shards);
+                cursors.add(opener.open(shardStart, shardEnd));
+                shardStart = shardEnd;
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (RowCursor<R> cursor : cursors) {
+                try {
+                    cursor.close();
+                } catch (SQLException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+            shardConnections.release(released);
+            throw e;
+        }
+
+        log.debug("Reading keys ({}, {}] with {} shards", startKey, endKey, shards);
+        return new ShardedRowCursor<>(cursors, rowFactory, copier, SHARD_CHUNK_SIZE,
+                Math.max(shards, MAX_BUFFERED_ROWS / SHARD_CHUNK_SIZE), () -> shardConnections.release(released));
+    }
+
+    public interface ShardOpener<R> {
+        RowCursor<R> open(int startKey, int endKey) throws SQLException;
+    }
+}
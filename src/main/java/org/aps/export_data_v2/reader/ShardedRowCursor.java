@@ -0,0 +1,137 @@
+package org.aps.export_data_v2.reader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+public class ShardedRowCursor<R> implements RowCursor<R> {
+    private static final Object END = new Object();
+
+    private final List<Shard<R>> shards = new ArrayList<>();
+    private final BiConsumer<R, R> copier;
+    private final BlockingQueue<RowChunk<R>> freeChunks = new LinkedBlockingQueue<>();
+    private final Runnable onClose;
+    private int currentShard;
+    private RowChunk<R> chunk;
+    private int chunkIndex;
+    private volatile boolean closed;
+
+    public ShardedRowCursor(List<RowCursor<R>> cursors, Supplier<R> rowFactory, BiConsumer<R, R> copier,
+                            int chunkSize, int maxBufferedChunks, Runnable onClose) {
+        this.copier = copier;
+        this.onClose = onClose;
+        int chunksPerShard = Math.max(2, maxBufferedChunks / cursors.size());
+        for (int i = 0; i < cursors.size(); i++) {
+            Shard<R> shard = new Shard<>(cursors.get(i), new LinkedBlockingQueue<>(), new Semaphore(chunksPerShard));
+            shard.thread = Thread.ofVirtual().name("Export-Shard-" + i)
+                    .start(() -> read(shard, rowFactory, chunkSize));
+            shards.add(shard);
+        }
+    }
+
+    @Override
+    public boolean next(R row) throws SQLException {
+        while (chunk == null || chunkIndex == chunk.size()) {
+            if (chunk != null) {
+                freeChunks.add(chunk);
+                shards.get(currentShard).bufferedChunks.release();
+                chunk = null;
+            }
+            if (currentShard == shards.size()) {
+                return false;
+            }
+
+            Object next = take(shards.get(currentShard).chunks);
+            if (next == END) {
+                currentShard++;
+            } else if (next instanceof SQLException e) {
+                throw e;
+            } else if (next instanceof RuntimeException e) {
+                throw e;
+            } else {
+                @SuppressWarnings("unchecked")
+                RowChunk<R> filled = (RowChunk<R>) next;
+                chunk = filled;
+                chunkIndex = 0;
+            }
+        }
+
+        copier.accept(row, chunk.get(chunkIndex++));
+        return true;
+    }
+
+    // Interrupting a thread blocked in a socket read closes the socket and hands a broken connection back to
+    // the pool, so running shards are cancelled through their statements instead.
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+        try {
+            for (Shard<R> shard : shards) {
+                try {
+                    shard.cursor.cancel();
+                } catch (SQLException ignored) {
+                    // The shard has already finished or is closing its statement.
+                }
+                shard.bufferedChunks.release();
+            }
+            for (Shard<R> shard : shards) {
+                shard.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while closing shard readers", e);
+        } finally {
+            onClose.run();
+        }
+    }
+
+    private void read(Shard<R> shard, Supplier<R> rowFactory, int chunkSize) {
+        try (RowCursor<R> cursor = shard.cursor) {
+            boolean more = true;
+            while (more && !closed) {
+                shard.bufferedChunks.acquire();
+                if (closed) {
+                    break;
+                }
+                RowChunk<R> filling = freeChunks.poll();
+                if (filling == null) {
+                    filling = new RowChunk<>(rowFactory, chunkSize);
+                }
+                more = filling.fill(cursor);
+                shard.chunks.add(filling);
+            }
+            shard.chunks.add(END);
+        } catch (SQLException | RuntimeException e) {
+            shard.chunks.add(e);
+        } catch (InterruptedException e) {
+            shard.chunks.add(new SQLException("Shard reader interrupted", e));
+        }
+    }
+
+    private Object take(BlockingQueue<Object> queue) throws SQLException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for shard rows", e);
+        }
+    }
+
+    private static final class Shard<R> {
+        private final RowCursor<R> cursor;
+        private final BlockingQueue<Object> chunks;
+        private final Semaphore bufferedChunks;
+        private Thread thread;
+
+        private Shard(RowCursor<R> cursor, BlockingQueue<Object> chunks, Semaphore bufferedChunks) {
+            this.cursor = cursor;
+            this.chunks = chunks;
+            this.bufferedChunks = bufferedChunks;
+        }
+    }
+}
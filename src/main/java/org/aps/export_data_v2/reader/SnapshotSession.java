@@ -0,0 +1,86 @@
+package org.aps.export_data_v2.reader;
+
+import lombok.Getter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+
+public class SnapshotSession implements AutoCloseable {
+    private final Connection connection;
+    private final Semaphore lock = new Semaphore(1);
+
+    @Getter
+    private final LocalDateTime startedAt;
+
+    private boolean closed;
+
+    private SnapshotSession(Connection connection, LocalDateTime startedAt) {
+        this.connection = connection;
+        this.startedAt = startedAt;
+    }
+
+    public static SnapshotSession begin(DataSource dataSource) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+            return new SnapshotSession(connection, LocalDateTime.now());
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    public <R> RowCursor<R> query(String sql, ResultSetRowMapper<R> mapper, Object... parameters)
+            throws SQLException {
+        try {
+            lock.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the export snapshot", e);
+        }
+        synchronized (this) {
+            if (closed) {
+                lock.release();
+                throw new SQLException("Export snapshot started at " + startedAt + " was released");
+            }
+        }
+        return JdbcRowCursor.open(connection, this::unlock, sql, mapper, parameters);
+    }
+
+    private synchronized void unlock() throws SQLException {
+        try {
+            if (closed) {
+                commit();
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    // A query still streaming rows keeps the connection until its cursor is closed.
+    @Override
+    public synchronized void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (lock.tryAcquire()) {
+            try {
+                commit();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private void commit() throws SQLException {
+        try (connection; Statement statement = connection.createStatement()) {
+            statement.execute("COMMIT");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.aps.export_data_v2.reader;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.constant.SnapshotMode;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.entity.ExportJobParameters;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SnapshotSessionRegistry {
+    private final DataSource dataSource;
+    private final ExportJobRepository exportJobRepository;
+    private final Map<Long, SnapshotSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${app.export.snapshot.max-age-seconds:3600}")
+    private long MAX_AGE_SECONDS;
+
+    public SnapshotSession begin() throws SQLException {
+        return SnapshotSession.begin(dataSource);
+    }
+
+    public void register(Long jobId, SnapshotSession session) {
+        sessions.put(jobId, session);
+    }
+
+    public boolean isPinned(Long jobId) {
+        return sessions.containsKey(jobId);
+    }
+
+    // Only the node that created the job holds its snapshot. After a restart, a release or on any other node the
+    // remaining batches read up to the job's high-water mark instead of opening a snapshot nobody would release.
+    public SnapshotSession sessionFor(ExportJob job) {
+        ExportJobParameters parameters = job.getParameters();
+        if (parameters == null || parameters.getSnapshotMode() != SnapshotMode.CONSISTENT_SNAPSHOT) {
+            return null;
+        }
+
+        SnapshotSession session = sessions.get(job.getId());
+        if (session == null && parameters.getSnapshotLostAt() == null) {
+            parameters.setSnapshotLostAt(LocalDateTime.now());
+            exportJobRepository.updateParameters(job.getId(), parameters);
+            log.warn("Snapshot of job {} is not held by this node, remaining batches read up to key {}",
+                    job.getJobUniqueId(), parameters.getHighWaterKey());
+        }
+        return session;
+    }
+
+    public void release(Long jobId) {
+        SnapshotSession session = sessions.remove(jobId);
+        if (session != null) {
+            close(session);
+        }
+    }
+
+    public void close(SnapshotSession session) {
+        try {
+            session.close();
+        } catch (SQLException e) {
+            log.warn("Could not close export snapshot started at {}", session.getStartedAt(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.export.snapshot.reap-interval-ms:60000}")
+    public void reapSessions() {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime expiredBefore = LocalDateTime.now().minusSeconds(MAX_AGE_SECONDS);
+        Set<Long> unfinishedJobIds = new HashSet<>();
+        for (ExportJob job : exportJobRepository.findAllById(List.copyOf(sessions.keySet()))) {
+            if (job.getCompletedAt() == null) {
+                unfinishedJobIds.add(job.getId());
+            }
+        }
+        sessions.forEach((jobId, session) -> {
+            if (!unfinishedJobIds.contains(jobId)) {
+                release(jobId);
+            } else if (session.getStartedAt().isBefore(expiredBefore)) {
+                log.warn("Snapshot of job {} is older than {} s, releasing it so InnoDB can purge old row versions",
+                        jobId, MAX_AGE_SECONDS);
+                release(jobId);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.keySet().forEach(this::release);
+    }
+}
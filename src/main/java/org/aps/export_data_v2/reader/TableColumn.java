@@ -0,0 +1,6 @@
+package org.aps.export_data_v2.reader;
+
+import org.aps.export_data_v2.constant.ColumnType;
+
+public record TableColumn(String name, String header, ColumnType type, String expression, int slot) {
+}
@@ -0,0 +1,43 @@
+package org.aps.export_data_v2.reader;
+
+public class TableRow {
+    private final int[] ints;
+    private final double[] doubles;
+    private final String[] texts;
+
+    public TableRow(int intSlots, int doubleSlots, int textSlots) {
+        this.ints = new int[intSlots];
+        this.doubles = new double[doubleSlots];
+        this.texts = new String[textSlots];
+    }
+
+    public int getInt(int slot) {
+        return ints[slot];
+    }
+
+    public double getDouble(int slot) {
+        return doubles[slot];
+    }
+
+    public String getText(int slot) {
+        return texts[slot];
+    }
+
+    void setInt(int slot, int value) {
+        ints[slot] = value;
+    }
+
+    void setDouble(int slot, double value) {
+        doubles[slot] = value;
+    }
+
+    void setText(int slot, String value) {
+        texts[slot] = value;
+    }
+
+    public void copyFrom(TableRow other) {
+        System.arraycopy(other.ints, 0, ints, 0, ints.length);
+        System.arraycopy(other.doubles, 0, doubles, 0, doubles.length);
+        System.arraycopy(other.texts, 0, texts, 0, texts.length);
+    }
+}
@@ -0,0 +1,136 @@
+package org.aps.export_data_v2.reader;
+
+import org.aps.export_data_v2.constant.ColumnType;
+import org.aps.export_data_v2.entity.ExportFilter;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class TableRowReader extends KeyRangeRowReader<TableRow> {
+    private final String source;
+    private final String keyColumn;
+    private final List<TableColumn> columns;
+    private final List<String> columnNames;
+    private final String versionExpression;
+    private final String changedKeysSql;
+    private final int changedKeysDateParameters;
+    private final String fullSelectList;
+    private final ResultSetRowMapper<TableRow> mapper;
+    private final int intSlots;
+    private final int doubleSlots;
+    private final int textSlots;
+
+    public TableRowReader(DataSource dataSource, SnapshotSessionRegistry snapshotSessionRegistry,
+                          ShardedReadSupport shardedReadSupport, String source, String keyColumn,
+                          List<TableColumn> columns, String versionExpression, List<String> changeColumns) {
+        super(dataSource, snapshotSessionRegistry, shardedReadSupport);
+        this.source = source;
+        this.keyColumn = keyColumn;
+        this.columns = List.copyOf(columns);
+        this.columnNames = columns.stream().map(TableColumn::name).toList();
+        this.versionExpression = versionExpression != null ? versionExpression : "NULL";
+        this.changedKeysSql = "SELECT " + keyColumn + " FROM " + source + " WHERE " + keyColumn + " > ?"
+                + changeColumns.stream().map(column -> " OR " + column + " >= ?").collect(Collectors.joining());
+        this.changedKeysDateParameters = changeColumns.size();
+        this.fullSelectList = selectList(null);
+        this.intSlots = slots(columns, ColumnType.INTEGER, ColumnType.DATE);
+        this.doubleSlots = slots(columns, ColumnType.NUMERIC);
+        this.textSlots = slots(columns, ColumnType.TEXT);
+        this.mapper = mapper(columns);
+    }
+
+    @Override
+    public TableRow newRow() {
+        return new TableRow(intSlots, doubleSlots, textSlots);
+    }
+
+    @Override
+    protected String source() {
+        return source;
+    }
+
+    @Override
+    protected String keyColumn() {
+        return keyColumn;
+    }
+
+    @Override
+    protected List<String> columnNames() {
+        return columnNames;
+    }
+
+    @Override
+    protected String columnExpression(String column) {
+        return columns.get(columnNames.indexOf(column)).expression();
+    }
+
+    @Override
+    protected String selectList(List<String> projection) {
+        if (projection == null && fullSelectList != null) {
+            return fullSelectList;
+        }
+
+        StringBuilder sql = new StringBuilder();
+        for (TableColumn column : columns) {
+            if (!sql.isEmpty()) {
+                sql.append(", ");
+            }
+            if (projection != null && !projection.contains(column.name())) {
+                sql.append(column.type() == ColumnType.TEXT ? "NULL" : "0");
+            } else if (column.type() == ColumnType.DATE) {
+                sql.append("DATEDIFF(").append(column.expression()).append(", '1970-01-01')");
+            } else {
+                sql.append(column.expression());
+            }
+        }
+        return sql.toString();
+    }
+
+    @Override
+    protected ResultSetRowMapper<TableRow> mapper() {
+        return mapper;
+    }
+
+    @Override
+    protected void copyRow(TableRow target, TableRow source) {
+        target.copyFrom(source);
+    }
+
+    @Override
+    protected String versionExpression() {
+        return versionExpression;
+    }
+
+    @Override
+    protected String changedKeysSql() {
+        return changedKeysSql;
+    }
+
+    @Override
+    protected int changedKeysDateParameters() {
+        return changedKeysDateParameters;
+    }
+
+    @Override
+    protected void filterConditions(ExportFilter filter, StringBuilder sql, List<Object> queryParameters) {
+    }
+
+    private static int slots(List<TableColumn> columns, ColumnType... types) {
+        return (int) columns.stream().filter(column -> List.of(types).contains(column.type())).count();
+    }
+
+    private static ResultSetRowMapper<TableRow> mapper(List<TableColumn> columns) {
+        ColumnType[] types = columns.stream().map(TableColumn::type).toArray(ColumnType[]::new);
+        int[] slots = columns.stream().mapToInt(TableColumn::slot).toArray();
+        return (resultSet, row) -> {
+            for (int i = 0; i < types.length; i++) {
+                switch (types[i]) {
+                    case INTEGER, DATE -> row.setInt(slots[i], resultSet.getInt(i + 1));
+                    case NUMERIC -> row.setDouble(slots[i], resultSet.getDouble(i + 1));
+                    case TEXT -> row.setText(slots[i], resultSet.getString(i + 1));
+                }
+            }
+        };
+    }
+}
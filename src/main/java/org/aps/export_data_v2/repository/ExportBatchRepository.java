@@ -1,27 +1,187 @@
 package org.aps.export_data_v2.repository;
 
+import jakarta.persistence.LockModeType;
 import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.entity.ArchivePart;
 import org.aps.export_data_v2.entity.ExportBatch;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ExportBatchRepository extends JpaRepository<ExportBatch, Long> {
+    String RETRY_BACKOFF_ELAPSED = "TIMESTAMPADD(SECOND, LEAST(:maxBackoff, :baseBackoff << LEAST(retry_count - 1, 20)), " +
+            "last_processed_at) <= :now";
+
     List<ExportBatch> findByExportJobIdAndStatus(Long jobId, BatchStatus status);
 
+    List<ExportBatch> findByExportJobIdAndStatusOrderByBatchNumber(Long jobId, BatchStatus status);
+
+    List<ExportBatch> findTop5ByExportJobIdAndStatusOrderByLastProcessedAtDesc(Long jobId, BatchStatus status);
+
+    long countByExportJobIdAndReusedFromBatchIdIsNotNull(Long jobId);
+
+    boolean existsByExportJobIdAndLastProcessedAtAfter(Long jobId, LocalDateTime since);
 
-    @Query("SELECT b FROM ExportBatch b WHERE b.exportJob.id = :jobId AND b.status IN :status AND b.retryCount < :maxRetries")
-    List<ExportBatch> findBatchesForRetry(
+    @Query("SELECT COALESCE(SUM(b.fetchMillis), 0), COALESCE(SUM(b.encodeMillis), 0), COALESCE(SUM(b.writeMillis), 0) " +
+            "FROM ExportBatch b WHERE b.exportJob.id = :jobId AND b.status = :status")
+    List<Object[]> sumStageMillisByJobIdAndStatus(@Param("jobId") Long jobId, @Param("status") BatchStatus status);
+
+    @Query(value = "SELECT id FROM export_batches WHERE job_id = :jobId AND (status = 'PENDING' " +
+            "OR (status = 'FAILED' AND retry_count < :maxRetries AND " + RETRY_BACKOFF_ELAPSED + ")) " +
+            "ORDER BY batch_number LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findLeasableBatchIds(
             @Param("jobId") Long jobId,
-            @Param("status") List<BatchStatus> status,
-            @Param("maxRetries") Integer maxRetries
+            @Param("maxRetries") Integer maxRetries,
+            @Param("baseBackoff") long baseBackoffSeconds,
+            @Param("maxBackoff") long maxBackoffSeconds,
+            @Param("now") LocalDateTime now
+    );
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ExportBatch b JOIN FETCH b.exportJob WHERE b.status = :status " +
+            "AND b.lastProcessedAt < :staleBefore AND (b.leaseExpiresAt IS NULL OR b.leaseExpiresAt < :now)")
+    List<ExportBatch> findStaleBatchesForUpdate(
+            @Param("status") BatchStatus status,
+            @Param("staleBefore") LocalDateTime staleBefore,
+            @Param("now") LocalDateTime now
     );
 
-    @Query("SELECT COUNT(b) FROM ExportBatch b WHERE b.exportJob.id = :jobId AND b.status = :status")
-    Integer countBatchesByJobIdAndStatus(@Param("jobId") Long jobId, @Param("status") BatchStatus status);
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportBatch b SET b.status = :to, b.leaseToken = NULL, b.leaseExpiresAt = NULL, " +
+            "b.errorMessage = :reason, b.retryCount = b.retryCount + 1, b.lastProcessedAt = :now " +
+            "WHERE b.id IN :ids AND b.status = :from")
+    int reclaimStaleBatches(
+            @Param("ids") List<Long> ids,
+            @Param("from") BatchStatus from,
+            @Param("to") BatchStatus to,
+            @Param("reason") String reason,
+            @Param("now") LocalDateTime now
+    );
+
+    @Query(value = "SELECT job_id, COUNT(*) FROM export_batches WHERE status = 'FAILED' " +
+            "AND last_processed_at < :retryBefore AND retry_count < :maxRetries AND " + RETRY_BACKOFF_ELAPSED +
+            " GROUP BY job_id", nativeQuery = true)
+    List<Object[]> countRetryableBatchesByJob(
+            @Param("maxRetries") Integer maxRetries,
+            @Param("retryBefore") LocalDateTime retryBefore,
+            @Param("baseBackoff") long baseBackoffSeconds,
+            @Param("maxBackoff") long maxBackoffSeconds,
+            @Param("now") LocalDateTime now
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportBatch b SET b.status = :status, b.leaseOwner = :owner, b.leaseToken = :token, " +
+            "b.leaseExpiresAt = :expiresAt, b.heartbeatAt = :leasedAt, b.lastProcessedAt = :leasedAt WHERE b.id = :id")
+    int lease(
+            @Param("id") Long id,
+            @Param("status") BatchStatus status,
+            @Param("owner") String owner,
+            @Param("token") String token,
+            @Param("leasedAt") LocalDateTime leasedAt,
+            @Param("expiresAt") LocalDateTime expiresAt
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportBatch b SET b.heartbeatAt = :heartbeatAt, b.lastProcessedAt = :heartbeatAt, " +
+            "b.leaseExpiresAt = :expiresAt WHERE b.id = :id AND b.leaseToken = :token")
+    int renewLease(
+            @Param("id") Long id,
+            @Param("token") String token,
+            @Param("heartbeatAt") LocalDateTime heartbeatAt,
+            @Param("expiresAt") LocalDateTime expiresAt
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportBatch b SET b.status = :to, b.leaseToken = NULL, b.leaseExpiresAt = NULL " +
+            "WHERE b.status = :from AND b.leaseOwner = :owner")
+    int releaseLeases(@Param("owner") String owner, @Param("from") BatchStatus from, @Param("to") BatchStatus to);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportBatch b SET b.status = :status, b.partialFilePath = :partialFilePath, b.fileSize = :fileSize, " +
+            "b.fileCrc32 = :fileCrc32, b.fetchMillis = :fetchMillis, b.encodeMillis = :encodeMillis, " +
+            "b.writeMillis = :writeMillis, b.rowCount = :rowCount, b.durationMillis = :durationMillis, " +
+            "b.rangeFingerprint = :rangeFingerprint, b.reusedFromBatchId = :reusedFromBatchId, " +
+            "b.errorMessage = NULL, b.leaseExpiresAt = NULL, b.lastProcessedAt = :processedAt " +
+            "WHERE b.id = :id AND b.leaseToken = :leaseToken")
+    int markCompleted(
+            @Param("id") Long id,
+            @Param("leaseToken") String leaseToken,
+            @Param("status") BatchStatus status,
+            @Param("partialFilePath") String partialFilePath,
+            @Param("fileSize") Long fileSize,
+            @Param("fileCrc32") Long fileCrc32,
+            @Param("fetchMillis") Long fetchMillis,
+            @Param("encodeMillis") Long encodeMillis,
+            @Param("writeMillis") Long writeMillis,
+            @Param("rowCount") Integer rowCount,
+            @Param("durationMillis") Long durationMillis,
+            @Param("rangeFingerprint") String rangeFingerprint,
+            @Param("reusedFromBatchId") Long reusedFromBatchId,
+            @Param("processedAt") LocalDateTime processedAt
+    );
+
+    @Query("SELECT b FROM ExportBatch b WHERE b.exportJob.exportType = :exportType AND b.exportJob.id <> :jobId " +
+            "AND b.startKey = :startKey AND b.endKey = :endKey AND b.rangeFingerprint = :rangeFingerprint " +
+            "AND b.status = :status ORDER BY b.id DESC")
+    List<ExportBatch> findReusableBatches(
+            @Param("exportType") String exportType,
+            @Param("jobId") Long jobId,
+            @Param("startKey") Integer startKey,
+            @Param("endKey") Integer endKey,
+            @Param("rangeFingerprint") String rangeFingerprint,
+            @Param("status") BatchStatus status,
+            Pageable pageable
+    );
+
+    @Query("SELECT b.endKey FROM ExportBatch b WHERE b.exportJob.exportType = :exportType AND b.exportJob.id <> :jobId " +
+            "AND b.startKey = :startKey AND b.rangeFingerprint IS NOT NULL AND b.status = :status ORDER BY b.id DESC")
+    List<Integer> findPreviousEndKeys(
+            @Param("exportType") String exportType,
+            @Param("jobId") Long jobId,
+            @Param("startKey") Integer startKey,
+            @Param("status") BatchStatus status,
+            Pageable pageable
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportBatch b SET b.status = :status, b.errorMessage = :errorMessage, " +
+            "b.retryCount = b.retryCount + 1, b.leaseExpiresAt = NULL, b.lastProcessedAt = :processedAt " +
+            "WHERE b.id = :id AND b.leaseToken = :leaseToken")
+    int markFailed(
+            @Param("id") Long id,
+            @Param("leaseToken") String leaseToken,
+            @Param("status") BatchStatus status,
+            @Param("errorMessage") String errorMessage,
+            @Param("processedAt") LocalDateTime processedAt
+    );
+
+    // The generator row starts from scratch when ddl-auto creates the table next to existing batches,
+    // so it is moved past MAX(id) plus a full allocation before any batch is inserted.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO export_id_generator (sequence_name, next_val) " +
+            "SELECT 'export_batches', COALESCE(MAX(id), 0) + :allocationSize + 1 FROM export_batches " +
+            "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))", nativeQuery = true)
+    int seedIdGenerator(@Param("allocationSize") int allocationSize);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportBatch b SET b.archivePart = :archivePart WHERE b.id = :id")
+    int updateArchivePart(@Param("id") Long id, @Param("archivePart") ArchivePart archivePart);
 }
\ No newline at end of file
@@ -1,12 +1,18 @@
 package org.aps.export_data_v2.repository;
 
+import jakarta.persistence.LockModeType;
 import org.aps.export_data_v2.constant.ExportStatus;
 import org.aps.export_data_v2.entity.ExportBatch;
 import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.entity.ExportJobParameters;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,6 +22,72 @@ import java.util.Optional;
 public interface ExportJobRepository extends JpaRepository<ExportJob, Long> {
     Optional<ExportJob> findByJobUniqueId(String jobUniqueId);
 
+    List<ExportJob> findByExportTypeAndStatusOrderByCompletedAtDesc(String exportType, ExportStatus status, Pageable pageable);
+
+    Optional<ExportJob> findFirstByCacheKeyAndStatusInAndEvictedAtIsNullOrderByCreatedAtDesc(
+            String cacheKey, List<ExportStatus> statuses);
+
+    @Query("SELECT e FROM ExportJob e WHERE e.status IN :statuses AND e.completedAt IS NOT NULL " +
+            "AND e.evictedAt IS NULL ORDER BY COALESCE(e.lastAccessedAt, e.completedAt)")
+    List<ExportJob> findEvictionCandidates(@Param("statuses") List<ExportStatus> statuses);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM ExportJob e WHERE e.id = :id")
+    Optional<ExportJob> findByIdForUpdate(@Param("id") Long id);
+
+    List<ExportJob> findByReservedBytesIsNotNullAndCompletedAtIsNull();
+
     @Query("SELECT e FROM ExportJob e WHERE e.status IN :status")
     List<ExportJob> findStuckJobs(@Param("status") List<ExportStatus> status);
+
+    @Query("SELECT e.id FROM ExportJob e WHERE e.status IN :statuses AND e.completedAt IS NULL " +
+            "AND e.createdAt < :staleBefore AND NOT EXISTS (SELECT b.id FROM ExportBatch b " +
+            "WHERE b.exportJob = e AND b.lastProcessedAt >= :staleBefore)")
+    List<Long> findIdleJobIds(@Param("statuses") List<ExportStatus> statuses,
+                              @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob e SET e.processedBatches = e.processedBatches + 1 WHERE e.id = :id")
+    int incrementProcessedBatches(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob e SET e.failedBatches = COALESCE(e.failedBatches, 0) + 1 WHERE e.id = :id")
+    int incrementFailedBatches(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob e SET e.parameters = :parameters WHERE e.id = :id")
+    int updateParameters(@Param("id") Long id, @Param("parameters") ExportJobParameters parameters);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob e SET e.nextStartKey = :nextStartKey, e.totalBatches = e.totalBatches + :plannedBatches, " +
+            "e.planningComplete = :planningComplete WHERE e.id = :id AND e.nextStartKey = :expectedStartKey")
+    int advancePlan(
+            @Param("id") Long id,
+            @Param("expectedStartKey") Integer expectedStartKey,
+            @Param("nextStartKey") Integer nextStartKey,
+            @Param("plannedBatches") int plannedBatches,
+            @Param("planningComplete") boolean planningComplete
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob e SET e.completedAt = :completedAt WHERE e.id = :id AND e.completedAt IS NULL " +
+            "AND (e.planningComplete IS NULL OR e.planningComplete = true) " +
+            "AND e.processedBatches + COALESCE(e.failedBatches, 0) >= e.totalBatches")
+    int markCompleted(@Param("id") Long id, @Param("completedAt") LocalDateTime completedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob e SET e.lastAccessedAt = :accessedAt WHERE e.id = :id")
+    int touch(@Param("id") Long id, @Param("accessedAt") LocalDateTime accessedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExportJob e SET e.evictedAt = :evictedAt, e.resultFileUrl = NULL, e.storageUrl = NULL, " +
+            "e.storageBytes = 0 WHERE e.id = :id")
+    int markEvicted(@Param("id") Long id, @Param("evictedAt") LocalDateTime evictedAt);
 }
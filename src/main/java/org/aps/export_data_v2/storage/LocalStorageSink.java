@@ -0,0 +1,76 @@
+package org.aps.export_data_v2.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.entity.ArchivePart;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+@Slf4j
+public class LocalStorageSink implements StorageSink {
+    private final Path sharedPath;
+
+    public LocalStorageSink(String sharedPath) {
+        this.sharedPath = sharedPath == null || sharedPath.isBlank() ? null : Paths.get(sharedPath);
+    }
+
+    @Override
+    public ArchivePart uploadBatch(ExportJob job, ExportBatch batch) {
+        return null;
+    }
+
+    @Override
+    public String publish(ExportJob job, Path result, List<ExportBatch> batches) throws IOException {
+        if (sharedPath == null) {
+            return result.toUri().toString();
+        }
+        Path target = sharedPath.resolve(job.getJobUniqueId()).resolve(result.getFileName().toString());
+        Path partPath = target.resolveSibling(target.getFileName() + ".part");
+        Files.createDirectories(target.getParent());
+        Files.copy(result, partPath, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(partPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Published result of job {} to {}", job.getJobUniqueId(), target);
+        return target.toUri().toString();
+    }
+
+    @Override
+    public Path localPath(String storageUrl) {
+        Path path = Paths.get(URI.create(storageUrl));
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    @Override
+    public URI downloadUri(String storageUrl, String fileName) {
+        return null;
+    }
+
+    @Override
+    public StoredObject open(String storageUrl) throws IOException {
+        Path path = Paths.get(URI.create(storageUrl));
+        return new StoredObject(Files.newInputStream(path), Files.size(path));
+    }
+
+    @Override
+    public void delete(String storageUrl) {
+        if (sharedPath == null) {
+            return;
+        }
+        Path path = Paths.get(URI.create(storageUrl));
+        if (!path.startsWith(sharedPath)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(path.getParent());
+        } catch (IOException e) {
+            log.warn("Could not delete stored result {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package org.aps.export_data_v2.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class S3Client {
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern ETAG = Pattern.compile("<ETag>([^<]+)</ETag>");
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final URI endpoint;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+
+    public S3Client(String endpoint, String region, String bucket, String accessKey, String secretKey) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void putObject(String key, Path source, long offset, long length) throws IOException {
+        send(request("PUT", key, Map.of(), Map.of()).PUT(fileRange(source, offset, length)), key);
+    }
+
+    public String createMultipartUpload(String key) throws IOException {
+        String body = send(request("POST", key, Map.of("uploads", ""), Map.of())
+                .POST(HttpRequest.BodyPublishers.noBody()), key).body();
+        return extract(UPLOAD_ID, body, key);
+    }
+
+    public String uploadPart(String key, String uploadId, int partNumber, Path source, long offset, long length)
+            throws IOException {
+        HttpResponse<String> response = send(request("PUT", key, partQuery(uploadId, partNumber), Map.of())
+                .PUT(fileRange(source, offset, length)), key);
+        return response.headers().firstValue("ETag")
+                .orElseThrow(() -> new IOException("No ETag for part " + partNumber + " of " + key));
+    }
+
+    public String uploadPartCopy(String key, String uploadId, int partNumber, String sourceKey) throws IOException {
+        String copySource = "/" + bucket + "/" + encodePath(sourceKey);
+        String body = send(request("PUT", key, partQuery(uploadId, partNumber), Map.of("x-amz-copy-source", copySource))
+                .PUT(HttpRequest.BodyPublishers.noBody()), key).body();
+        return extract(ETAG, body, key).replace("&quot;", "\"");
+    }
+
+    public void completeMultipartUpload(String key, String uploadId, List<String> etags) throws IOException {
+        StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < etags.size(); i++) {
+            body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(etags.get(i).replace("\"", "&quot;")).append("</ETag></Part>");
+        }
+        body.append("</CompleteMultipartUpload>");
+        String response = send(request("POST", key, Map.of("uploadId", uploadId), Map.of())
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())), key).body();
+        if (response.contains("<Error>")) {
+            throw new IOException("Could not complete upload of " + key + ": " + response);
+        }
+    }
+
+    public void abortMultipartUpload(String key, String uploadId) throws IOException {
+        send(request("DELETE", key, Map.of("uploadId", uploadId), Map.of()).DELETE(), key);
+    }
+
+    public StoredObject getObject(String key) throws IOException {
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request("GET", key, Map.of(), Map.of()).GET().build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + key, e);
+        }
+        if (response.statusCode() >= 300) {
+            try (InputStream body = response.body()) {
+                throw new IOException("GET " + key + " failed with status " + response.statusCode() + ": "
+                        + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        OptionalLong length = response.headers().firstValueAsLong("Content-Length");
+        return new StoredObject(response.body(), length.orElse(-1));
+    }
+
+    public void deleteObject(String key) throws IOException {
+        send(request("DELETE", key, Map.of(), Map.of()).DELETE(), key);
+    }
+
+    public URI presignGet(String key, Duration expiry, String fileName) {
+        Instant now = Instant.now();
+        String amzDate = AMZ_DATE.format(now);
+        String scope = amzDate.substring(0, 8) + "/" + region + "/" + SERVICE + "/aws4_request";
+
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", accessKey + "/" + scope);
+        query.put("X-Amz-Date", amzDate);
+        query.put("X-Amz-Expires", String.valueOf(expiry.toSeconds()));
+        query.put("X-Amz-SignedHeaders", "host");
+        if (fileName != null) {
+            query.put("response-content-disposition", "attachment; filename=\"" + fileName + "\"");
+        }
+        String path = objectPath(key);
+        String canonicalQuery = canonicalQuery(query);
+        String canonicalRequest = String.join("\n", "GET", path, canonicalQuery, "host:" + host() + "\n", "host",
+                UNSIGNED_PAYLOAD);
+        String signature = sign(amzDate, scope, canonicalRequest);
+        return URI.create(endpoint + path + "?" + canonicalQuery + "&X-Amz-Signature=" + signature);
+    }
+
+    private HttpRequest.Builder request(String method, String key, Map<String, String> query,
+                                        Map<String, String> extraHeaders) {
+        String amzDate = AMZ_DATE.format(Instant.now());
+        String scope = amzDate.substring(0, 8) + "/" + region + "/" + SERVICE + "/aws4_request";
+
+        Map<String, String> headers = new TreeMap<>(extraHeaders);
+        headers.put("host", host());
+        headers.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        headers.put("x-amz-date", amzDate);
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonicalHeaders = headers.entrySet().stream()
+                .map(header -> header.getKey() + ":" + header.getValue().trim() + "\n")
+                .collect(Collectors.joining());
+
+        String path = objectPath(key);
+        String canonicalQuery = canonicalQuery(query);
+        String canonicalRequest = String.join("\n", method, path, canonicalQuery, canonicalHeaders, signedHeaders,
+                UNSIGNED_PAYLOAD);
+        String authorization = ALGORITHM + " Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + signedHeaders
+                + ", Signature=" + sign(amzDate, scope, canonicalRequest);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(
+                        URI.create(endpoint + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery)))
+                .timeout(Duration.ofMinutes(10))
+                .header("Authorization", authorization);
+        headers.forEach((name, value) -> {
+            if (!name.equals("host")) {
+                builder.header(name, value);
+            }
+        });
+        return builder;
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request, String key) throws IOException {
+        HttpRequest built = request.build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(built, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending " + built.method() + " " + key, e);
+        }
+        if (response.statusCode() >= 300) {
+            throw new IOException(built.method() + " " + key + " failed with status " + response.statusCode() + ": "
+                    + response.body());
+        }
+        return response;
+    }
+
+    private String sign(String amzDate, String scope, String canonicalRequest) {
+        try {
+            String stringToSign = String.join("\n", ALGORITHM, amzDate, scope,
+                    HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                            .digest(canonicalRequest.getBytes(StandardCharsets.UTF_8))));
+            byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), amzDate.substring(0, 8));
+            key = hmac(key, region);
+            key = hmac(key, SERVICE);
+            key = hmac(key, "aws4_request");
+            return HexFormat.of().formatHex(hmac(key, stringToSign));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String host() {
+        return endpoint.getPort() < 0 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+    }
+
+    private String objectPath(String key) {
+        return endpoint.getRawPath() + "/" + bucket + "/" + encodePath(key);
+    }
+
+    private static Map<String, String> partQuery(String uploadId, int partNumber) {
+        return Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId);
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        return new TreeMap<>(query).entrySet().stream()
+                .map(parameter -> encode(parameter.getKey()) + "=" + encode(parameter.getValue()))
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String encodePath(String key) {
+        return Pattern.compile("/").splitAsStream(key).map(S3Client::encode).collect(Collectors.joining("/"));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private static String extract(Pattern pattern, String body, String key) throws IOException {
+        Matcher matcher = pattern.matcher(body);
+        if (!matcher.find()) {
+            throw new IOException("Unexpected response for " + key + ": " + body);
+        }
+        return matcher.group(1);
+    }
+
+    private static HttpRequest.BodyPublisher fileRange(Path source, long offset, long length) {
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return new FileRangeInputStream(FileChannel.open(source, StandardOpenOption.READ), offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), length);
+    }
+
+    private static final class FileRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        private FileRangeInputStream(FileChannel channel, long position, long remaining) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file with " + remaining + " bytes left in range");
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
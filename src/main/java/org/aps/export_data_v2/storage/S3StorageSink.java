@@ -0,0 +1,297 @@
+package org.aps.export_data_v2.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aps.export_data_v2.archive.ExportArchiveAssembler;
+import org.aps.export_data_v2.archive.ZipArchiveReader;
+import org.aps.export_data_v2.archive.ZipArchiveWriter;
+import org.aps.export_data_v2.archive.ZipEntryInfo;
+import org.aps.export_data_v2.entity.ArchivePart;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+@Slf4j
+public class S3StorageSink implements StorageSink, Closeable {
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+    private static final String SCHEME = "s3://";
+
+    private final S3Client client;
+    private final String prefix;
+    private final long partSize;
+    private final long minPartSize;
+    private final Duration presignExpiry;
+    private final ExecutorService uploadExecutor;
+
+    public S3StorageSink(S3Client client, String prefix, long partSize, long minPartSize, Duration presignExpiry,
+                         ExecutorService uploadExecutor) {
+        this.client = client;
+        this.prefix = prefix == null || prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.minPartSize = minPartSize;
+        this.partSize = Math.max(partSize, minPartSize);
+        this.presignExpiry = presignExpiry;
+        this.uploadExecutor = uploadExecutor;
+    }
+
+    @Override
+    public ArchivePart uploadBatch(ExportJob job, ExportBatch batch) throws IOException {
+        if (batch.getPartialFilePath() == null) {
+            return null;
+        }
+        Path source = Paths.get(batch.getPartialFilePath());
+        Path fragment = source.resolveSibling(source.getFileName() + ".zipentry");
+        ZipArchiveWriter writer = new ZipArchiveWriter(FileChannel.open(fragment, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        try {
+            if (!ExportArchiveAssembler.addBatch(writer, job.resolveExportFormat(), batch)) {
+                return null;
+            }
+            writer.closeWithoutDirectory();
+            long length = writer.getPosition();
+            if (length < minPartSize || length > MAX_PART_SIZE) {
+                return null;
+            }
+
+            ZipEntryInfo entry = writer.getLastEntry();
+            String key = directory(job) + "parts/" + entry.name();
+            client.putObject(key, fragment, 0, length);
+            log.debug("Uploaded archive entry {} of job {} ({} bytes)", entry.name(), job.getJobUniqueId(), length);
+            return ArchivePart.of(key, length, entry);
+        } finally {
+            writer.closeWithoutDirectory();
+            Files.deleteIfExists(fragment);
+        }
+    }
+
+    @Override
+    public String publish(ExportJob job, Path result, List<ExportBatch> batches) throws IOException {
+        String key = directory(job) + result.getFileName();
+        try {
+            if (result.getFileName().toString().endsWith(".zip")) {
+                composeArchive(key, result, batches);
+            } else {
+                uploadFile(key, result);
+            }
+        } finally {
+            for (ExportBatch batch : batches) {
+                if (batch.getArchivePart() != null) {
+                    deleteQuietly(batch.getArchivePart().getObjectKey());
+                }
+            }
+        }
+        log.info("Published result of job {} to {}", job.getJobUniqueId(), key);
+        return SCHEME + client.getBucket() + "/" + key;
+    }
+
+    @Override
+    public Path localPath(String storageUrl) {
+        return null;
+    }
+
+    @Override
+    public URI downloadUri(String storageUrl, String fileName) {
+        return client.presignGet(objectKey(storageUrl), presignExpiry, fileName);
+    }
+
+    @Override
+    public StoredObject open(String storageUrl) throws IOException {
+        return client.getObject(objectKey(storageUrl));
+    }
+
+    @Override
+    public void delete(String storageUrl) {
+        deleteQuietly(objectKey(storageUrl));
+    }
+
+    @Override
+    public void close() {
+        uploadExecutor.shutdown();
+    }
+
+    private void uploadFile(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size <= partSize) {
+            client.putObject(key, source, 0, size);
+            return;
+        }
+
+        String uploadId = client.createMultipartUpload(key);
+        List<Future<String>> parts = new ArrayList<>();
+        try {
+            for (long offset = 0; offset < size; offset += partSize) {
+                long start = offset;
+                int partNumber = parts.size() + 1;
+                parts.add(uploadExecutor.submit(() ->
+                        client.uploadPart(key, uploadId, partNumber, source, start, Math.min(partSize, size - start))));
+            }
+            client.completeMultipartUpload(key, uploadId, await(parts));
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId, parts);
+            throw e;
+        }
+    }
+
+    private void composeArchive(String key, Path archive, List<ExportBatch> batches) throws IOException {
+        Map<String, ArchivePart> uploaded = new HashMap<>();
+        for (ExportBatch batch : batches) {
+            if (batch.getArchivePart() != null) {
+                uploaded.put(batch.getArchivePart().getEntryName(), batch.getArchivePart());
+            }
+        }
+
+        String uploadId = client.createMultipartUpload(key);
+        List<Future<String>> parts = new ArrayList<>();
+        PendingPart pending = null;
+        int copiedParts = 0;
+        try (ZipArchiveReader reader = ZipArchiveReader.open(archive)) {
+            List<ZipEntryInfo> directory = new ArrayList<>();
+            long offset = 0;
+            for (ZipArchiveReader.Entry entry : reader.getEntries()) {
+                ArchivePart part = uploaded.get(entry.name());
+                boolean copyable = part != null && part.getCrc32() == entry.crc32() && part.getSize() == entry.size();
+                if (copyable && pending != null && pending.length >= minPartSize) {
+                    parts.add(upload(key, uploadId, parts.size() + 1, pending));
+                    pending = null;
+                }
+
+                if (copyable && pending == null) {
+                    int partNumber = parts.size() + 1;
+                    parts.add(uploadExecutor.submit(() ->
+                            client.uploadPartCopy(key, uploadId, partNumber, part.getObjectKey())));
+                    directory.add(part.entryAt(offset));
+                    offset += part.getLength();
+                    copiedParts++;
+                    continue;
+                }
+
+                if (pending == null) {
+                    pending = new PendingPart(archive.resolveSibling(archive.getFileName() + ".upload" + (parts.size() + 1)));
+                }
+                long length = reader.entryLength(entry);
+                reader.transferTo(entry.localHeaderOffset(), length, pending.channel);
+                pending.length += length;
+                directory.add(entry.info(offset));
+                offset += length;
+                if (pending.length >= partSize) {
+                    parts.add(upload(key, uploadId, parts.size() + 1, pending));
+                    pending = null;
+                }
+            }
+
+            if (pending == null) {
+                pending = new PendingPart(archive.resolveSibling(archive.getFileName() + ".upload" + (parts.size() + 1)));
+            }
+            ZipArchiveWriter writer = new ZipArchiveWriter(pending.channel, offset);
+            directory.forEach(writer::addExternal);
+            writer.close();
+            pending.length += writer.getPosition() - offset;
+            parts.add(upload(key, uploadId, parts.size() + 1, pending));
+            pending = null;
+
+            client.completeMultipartUpload(key, uploadId, await(parts));
+            log.debug("Composed {} from {} parts, {} copied from uploaded batch entries", key, parts.size(), copiedParts);
+        } catch (IOException | RuntimeException e) {
+            if (pending != null) {
+                pending.discard();
+            }
+            abort(key, uploadId, parts);
+            throw e;
+        }
+    }
+
+    private Future<String> upload(String key, String uploadId, int partNumber, PendingPart pending) throws IOException {
+        pending.channel.close();
+        return uploadExecutor.submit(() -> {
+            try {
+                return client.uploadPart(key, uploadId, partNumber, pending.path, 0, pending.length);
+            } finally {
+                Files.deleteIfExists(pending.path);
+            }
+        });
+    }
+
+    private List<String> await(List<Future<String>> parts) throws IOException {
+        List<String> etags = new ArrayList<>(parts.size());
+        for (Future<String> part : parts) {
+            try {
+                etags.add(part.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while uploading parts", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException cause) {
+                    throw cause;
+                }
+                throw new IOException("Part upload failed", e.getCause());
+            }
+        }
+        return etags;
+    }
+
+    private void abort(String key, String uploadId, List<Future<String>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            client.abortMultipartUpload(key, uploadId);
+        } catch (IOException e) {
+            log.warn("Could not abort multipart upload {} of {}", uploadId, key, e);
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            client.deleteObject(key);
+        } catch (IOException e) {
+            log.warn("Could not delete object {}", key, e);
+        }
+    }
+
+    private String directory(ExportJob job) {
+        return (prefix == null ? "" : prefix) + job.getJobUniqueId() + "/";
+    }
+
+    private String objectKey(String storageUrl) {
+        String bucketPrefix = SCHEME + client.getBucket() + "/";
+        if (!storageUrl.startsWith(bucketPrefix)) {
+            throw new IllegalArgumentException("Not an object in bucket " + client.getBucket() + ": " + storageUrl);
+        }
+        return storageUrl.substring(bucketPrefix.length());
+    }
+
+    private static final class PendingPart {
+        private final Path path;
+        private final FileChannel channel;
+        private long length;
+
+        private PendingPart(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        }
+
+        private void discard() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete pending part {}", path, e);
+            }
+        }
+    }
+}
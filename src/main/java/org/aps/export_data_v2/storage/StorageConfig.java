@@ -0,0 +1,35 @@
+package org.aps.export_data_v2.storage;
+
+import org.aps.export_data_v2.constant.StorageSinkType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class StorageConfig {
+    @Bean
+    public StorageSink storageSink(@Value("${app.storage.sink:LOCAL}") StorageSinkType type,
+                                   @Value("${app.storage.local.shared-path:}") String sharedPath,
+                                   @Value("${app.storage.s3.endpoint:}") String endpoint,
+                                   @Value("${app.storage.s3.region:us-east-1}") String region,
+                                   @Value("${app.storage.s3.bucket:}") String bucket,
+                                   @Value("${app.storage.s3.access-key:}") String accessKey,
+                                   @Value("${app.storage.s3.secret-key:}") String secretKey,
+                                   @Value("${app.storage.s3.prefix:exports/}") String prefix,
+                                   @Value("${app.storage.s3.part-size:16777216}") long partSize,
+                                   @Value("${app.storage.s3.upload-threads:4}") int uploadThreads,
+                                   @Value("${app.storage.s3.presign-expiry-minutes:15}") long presignExpiryMinutes) {
+        if (type == StorageSinkType.LOCAL) {
+            return new LocalStorageSink(sharedPath);
+        }
+        if (endpoint.isBlank() || bucket.isBlank()) {
+            throw new IllegalStateException("app.storage.s3.endpoint and app.storage.s3.bucket are required for the S3 sink");
+        }
+        return new S3StorageSink(new S3Client(endpoint, region, bucket, accessKey, secretKey), prefix, partSize,
+                S3StorageSink.MIN_PART_SIZE, Duration.ofMinutes(presignExpiryMinutes),
+                Executors.newFixedThreadPool(uploadThreads, Thread.ofPlatform().name("Export-Upload-", 0).factory()));
+    }
+}
@@ -0,0 +1,24 @@
+package org.aps.export_data_v2.storage;
+
+import org.aps.export_data_v2.entity.ArchivePart;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+
+public interface StorageSink {
+    ArchivePart uploadBatch(ExportJob job, ExportBatch batch) throws IOException;
+
+    String publish(ExportJob job, Path result, List<ExportBatch> batches) throws IOException;
+
+    Path localPath(String storageUrl);
+
+    URI downloadUri(String storageUrl, String fileName);
+
+    StoredObject open(String storageUrl) throws IOException;
+
+    void delete(String storageUrl);
+}
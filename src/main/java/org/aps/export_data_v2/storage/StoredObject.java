@@ -0,0 +1,13 @@
+package org.aps.export_data_v2.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+public record StoredObject(InputStream content, long length) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
@@ -0,0 +1,11 @@
+package org.aps.export_data_v2.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface BatchFileWriter<R> extends Closeable {
+
+    void writeRow(R row) throws IOException;
+
+    int getRowCount();
+}
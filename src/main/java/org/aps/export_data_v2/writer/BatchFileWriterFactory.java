@@ -0,0 +1,53 @@
+package org.aps.export_data_v2.writer;
+
+import lombok.RequiredArgsConstructor;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.constant.XlsxEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+@RequiredArgsConstructor
+public class BatchFileWriterFactory {
+    private final Environment environment;
+
+    @Value("${app.export.row-access-window:1000}")
+    private int ROW_ACCESS_WINDOW;
+
+    @Value("${app.export.xlsx-engine:SXSSF}")
+    private XlsxEngine DEFAULT_XLSX_ENGINE;
+
+    @Value("${app.export.xlsx.max-rows-per-sheet:1048576}")
+    private int MAX_ROWS_PER_SHEET;
+
+    @Value("${app.export.xlsx.max-sheet-bytes:0}")
+    private long MAX_SHEET_BYTES;
+
+    @Value("${app.export.xlsx.compress-temp-files:true}")
+    private boolean COMPRESS_TEMP_FILES;
+
+    public <R> BatchFileWriter<R> open(String exportType, ExportFormat format, OutputStream target, String title,
+                                       List<ExportColumn<R>> columns) throws IOException {
+        SheetLimits sheetLimits = new SheetLimits(MAX_ROWS_PER_SHEET, MAX_SHEET_BYTES);
+        return switch (format) {
+            case EXCEL -> switch (xlsxEngine(exportType)) {
+                case SXSSF -> new SxssfBatchFileWriter<>(target, ROW_ACCESS_WINDOW, title, columns, sheetLimits,
+                        COMPRESS_TEMP_FILES);
+                case STREAMING -> new StreamingXlsxBatchFileWriter<>(target, title, columns, sheetLimits);
+            };
+            case CSV -> new CsvBatchFileWriter<>(target, columns);
+            case CSV_GZ -> new CsvBatchFileWriter<>(new GZIPOutputStream(target, 64 * 1024), columns);
+            case PARQUET -> new ParquetBatchFileWriter<>(target, columns);
+        };
+    }
+
+    public XlsxEngine xlsxEngine(String exportType) {
+        return environment.getProperty("app.export.xlsx-engine." + exportType, XlsxEngine.class, DEFAULT_XLSX_ENGINE);
+    }
+}
@@ -0,0 +1,71 @@
+package org.aps.export_data_v2.writer;
+
+import org.aps.export_data_v2.constant.ColumnType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public class CsvBatchFileWriter<R> implements BatchFileWriter<R> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte SEPARATOR = ',';
+    private static final byte[] LINE_END = EncodingBuffer.ascii("\r\n");
+
+    private final OutputStream stream;
+    private final EncodingBuffer out;
+    private final List<ExportColumn<R>> columns;
+    private final ColumnType[] columnTypes;
+    private int rowCount;
+
+    public CsvBatchFileWriter(OutputStream stream, List<ExportColumn<R>> columns) throws IOException {
+        this.stream = stream;
+        this.out = new EncodingBuffer(stream, BUFFER_SIZE);
+        this.columns = List.copyOf(columns);
+        this.columnTypes = new ColumnType[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            columnTypes[i] = columns.get(i).getType();
+            if (i > 0) {
+                out.append(SEPARATOR);
+            }
+            out.appendCsvField(columns.get(i).getHeader());
+        }
+        out.append(LINE_END);
+    }
+
+    @Override
+    public void writeRow(R row) throws IOException {
+        out.ensureCapacity();
+        for (int i = 0; i < columnTypes.length; i++) {
+            if (i > 0) {
+                out.append(SEPARATOR);
+            }
+            ExportColumn<R> column = columns.get(i);
+            switch (columnTypes[i]) {
+                case INTEGER -> out.appendInt(column.intValue(row));
+                case NUMERIC -> out.appendDouble(column.doubleValue(row));
+                case DATE -> out.appendIsoDate(column.intValue(row));
+                case TEXT -> {
+                    String value = column.textValue(row);
+                    if (value != null) {
+                        out.appendCsvField(value);
+                    }
+                }
+            }
+            out.ensureCapacity();
+        }
+        out.append(LINE_END);
+        rowCount++;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (stream) {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.aps.export_data_v2.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+class EncodingBuffer {
+    private static final int HEADROOM = 4 * 1024;
+
+    private static final byte[] XML_AMP = ascii("&amp;");
+    private static final byte[] XML_LT = ascii("&lt;");
+    private static final byte[] XML_GT = ascii("&gt;");
+    private static final byte[] XML_QUOT = ascii("&quot;");
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final int flushThreshold;
+    private int position;
+    private long flushed;
+
+    EncodingBuffer(OutputStream out, int size) {
+        this.out = out;
+        this.buffer = new byte[size];
+        this.flushThreshold = size - HEADROOM;
+    }
+
+    long size() {
+        return flushed + position;
+    }
+
+    void ensureCapacity() throws IOException {
+        if (position >= flushThreshold) {
+            flush();
+        }
+    }
+
+    void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            flushed += position;
+            position = 0;
+        }
+    }
+
+    void append(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    void append(byte value) {
+        buffer[position++] = value;
+    }
+
+    void appendLarge(String value) throws IOException {
+        flush();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        flushed += bytes.length;
+    }
+
+    void appendInt(int value) {
+        if (value == Integer.MIN_VALUE) {
+            append(ascii(Integer.toString(value)));
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int limit = 10; digits < 10 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        appendDigits(value, digits);
+    }
+
+    void appendDouble(double value) {
+        if (value == (int) value) {
+            appendInt((int) value);
+        } else {
+            append(ascii(Double.toString(value)));
+        }
+    }
+
+    void appendIsoDate(int epochDay) {
+        long z = epochDay + 719468L;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        appendDigits(year, 4);
+        buffer[position++] = '-';
+        appendDigits(month, 2);
+        buffer[position++] = '-';
+        appendDigits(day, 2);
+    }
+
+    void appendXmlEscaped(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            ensureCapacity();
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> append(XML_AMP);
+                case '<' -> append(XML_LT);
+                case '>' -> append(XML_GT);
+                case '"' -> append(XML_QUOT);
+                default -> {
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        i = appendUtf8(value, i);
+                    }
+                }
+            }
+        }
+    }
+
+    void appendCsvField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            buffer[position++] = '"';
+        }
+        for (int i = 0; i < value.length(); i++) {
+            ensureCapacity();
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer[position++] = '"';
+            }
+            i = appendUtf8(value, i);
+        }
+        if (quote) {
+            buffer[position++] = '"';
+        }
+    }
+
+    private int appendUtf8(String value, int index) {
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(++index));
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return index;
+    }
+
+    private void appendDigits(int value, int digits) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
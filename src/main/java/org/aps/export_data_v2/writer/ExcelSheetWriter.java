@@ -0,0 +1,126 @@
+package org.aps.export_data_v2.writer;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.aps.export_data_v2.constant.ColumnType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ExcelSheetWriter<R> {
+    public static final String DATE_FORMAT = "yyyy-mm-dd";
+    public static final int EXCEL_EPOCH_DAY_OFFSET = 25569;
+    public static final String WORKSHEET_CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml";
+
+    private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+    private final SXSSFWorkbook workbook;
+    private final String title;
+    private final List<ExportColumn<R>> columns;
+    private final CellStyle titleStyle;
+    private final CellStyle headerStyle;
+    private final List<CellWriter<R>> cellWriters;
+    private SXSSFSheet sheet;
+    private int sheetCount;
+    private int rowIndex;
+
+    public ExcelSheetWriter(SXSSFWorkbook workbook, String title, List<ExportColumn<R>> columns) {
+        this.workbook = workbook;
+        this.title = title;
+        this.columns = columns;
+
+        titleStyle = createStyle(workbook, 20, true);
+        titleStyle.setAlignment(HorizontalAlignment.CENTER);
+        headerStyle = createStyle(workbook, 16, true);
+        CellStyle dataStyle = createStyle(workbook, 14, false);
+        CellStyle dateStyle = createStyle(workbook, 14, false);
+        dateStyle.setDataFormat(workbook.createDataFormat().getFormat(DATE_FORMAT));
+
+        cellWriters = new ArrayList<>(columns.size());
+        for (ExportColumn<R> column : columns) {
+            cellWriters.add(cellWriter(column, column.getType() == ColumnType.DATE
+                    ? dateStyle : dataStyle));
+        }
+        startSheet();
+    }
+
+    public void startSheet() {
+        sheet = workbook.createSheet(sheetName(title, ++sheetCount));
+        rowIndex = 0;
+
+        Row titleRow = sheet.createRow(rowIndex++);
+        Cell titleCell = titleRow.createCell(0);
+        titleCell.setCellValue(title);
+        titleCell.setCellStyle(titleStyle);
+        if (columns.size() > 1) {
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, columns.size() - 1));
+        }
+
+        Row headerRow = sheet.createRow(rowIndex++);
+        for (int i = 0; i < columns.size(); i++) {
+            Cell headerCell = headerRow.createCell(i);
+            headerCell.setCellValue(columns.get(i).getHeader());
+            headerCell.setCellStyle(headerStyle);
+        }
+    }
+
+    public void writeRow(R value) {
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < cellWriters.size(); i++) {
+            cellWriters.get(i).write(row.createCell(i), value);
+        }
+    }
+
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    public static String sheetName(String title, int sheetNumber) {
+        String name = title.replaceAll("[\\\\/?*\\[\\]:]", " ");
+        String suffix = sheetNumber > 1 ? " (" + sheetNumber + ")" : "";
+        int maxLength = MAX_SHEET_NAME_LENGTH - suffix.length();
+        return (name.length() > maxLength ? name.substring(0, maxLength) : name) + suffix;
+    }
+
+    private static CellStyle createStyle(SXSSFWorkbook workbook, int fontHeight, boolean bold) {
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(bold);
+        font.setFontHeightInPoints((short) fontHeight);
+        style.setFont(font);
+        return style;
+    }
+
+    private static <R> CellWriter<R> cellWriter(ExportColumn<R> column, CellStyle style) {
+        return switch (column.getType()) {
+            case INTEGER -> (cell, row) -> {
+                cell.setCellValue(column.intValue(row));
+                cell.setCellStyle(style);
+            };
+            case NUMERIC -> (cell, row) -> {
+                cell.setCellValue(column.doubleValue(row));
+                cell.setCellStyle(style);
+            };
+            case DATE -> (cell, row) -> {
+                cell.setCellValue(column.intValue(row) + EXCEL_EPOCH_DAY_OFFSET);
+                cell.setCellStyle(style);
+            };
+            case TEXT -> (cell, row) -> {
+                cell.setCellValue(column.textValue(row));
+                cell.setCellStyle(style);
+            };
+        };
+    }
+
+    @FunctionalInterface
+    private interface CellWriter<R> {
+        void write(Cell cell, R row);
+    }
+}
@@ -0,0 +1,54 @@
+package org.aps.export_data_v2.writer;
+
+import lombok.Getter;
+import org.aps.export_data_v2.constant.ColumnType;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+@Getter
+public final class ExportColumn<R> {
+    private final String header;
+    private final ColumnType type;
+    private final ToIntFunction<R> intGetter;
+    private final ToDoubleFunction<R> doubleGetter;
+    private final Function<R, String> textGetter;
+
+    private ExportColumn(String header, ColumnType type, ToIntFunction<R> intGetter,
+                         ToDoubleFunction<R> doubleGetter, Function<R, String> textGetter) {
+        this.header = header;
+        this.type = type;
+        this.intGetter = intGetter;
+        this.doubleGetter = doubleGetter;
+        this.textGetter = textGetter;
+    }
+
+    public static <R> ExportColumn<R> integer(String header, ToIntFunction<R> getter) {
+        return new ExportColumn<>(header, ColumnType.INTEGER, getter, null, null);
+    }
+
+    public static <R> ExportColumn<R> numeric(String header, ToDoubleFunction<R> getter) {
+        return new ExportColumn<>(header, ColumnType.NUMERIC, null, getter, null);
+    }
+
+    public static <R> ExportColumn<R> date(String header, ToIntFunction<R> epochDayGetter) {
+        return new ExportColumn<>(header, ColumnType.DATE, epochDayGetter, null, null);
+    }
+
+    public static <R> ExportColumn<R> text(String header, Function<R, String> getter) {
+        return new ExportColumn<>(header, ColumnType.TEXT, null, null, getter);
+    }
+
+    public int intValue(R row) {
+        return intGetter.applyAsInt(row);
+    }
+
+    public double doubleValue(R row) {
+        return doubleGetter.applyAsDouble(row);
+    }
+
+    public String textValue(R row) {
+        return textGetter.apply(row);
+    }
+}
@@ -0,0 +1,230 @@
+package org.aps.export_data_v2.writer;
+
+import org.aps.export_data_v2.constant.ColumnType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ParquetBatchFileWriter<R> implements BatchFileWriter<R> {
+    private static final int ROWS_PER_ROW_GROUP = 128 * 1024;
+    private static final byte[] MAGIC = EncodingBuffer.ascii("PAR1");
+
+    private static final int TYPE_INT32 = 1;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    private static final int REPETITION_REQUIRED = 0;
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DATE = 6;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_RLE = 3;
+    private static final int CODEC_UNCOMPRESSED = 0;
+    private static final int PAGE_TYPE_DATA = 0;
+
+    private final OutputStream out;
+    private final List<ExportColumn<R>> columns;
+    private final ColumnType[] columnTypes;
+    private final byte[][] fixedWidthValues;
+    private final ByteArrayOutputStream[] variableWidthValues;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private long position;
+    private int rowGroupRows;
+    private int rowCount;
+
+    public ParquetBatchFileWriter(OutputStream target, List<ExportColumn<R>> columns) throws IOException {
+        this.columns = List.copyOf(columns);
+        this.columnTypes = new ColumnType[columns.size()];
+        this.fixedWidthValues = new byte[columns.size()][];
+        this.variableWidthValues = new ByteArrayOutputStream[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            columnTypes[i] = columns.get(i).getType();
+            if (columnTypes[i] == ColumnType.TEXT) {
+                variableWidthValues[i] = new ByteArrayOutputStream();
+            } else {
+                fixedWidthValues[i] = new byte[ROWS_PER_ROW_GROUP * valueWidth(columnTypes[i])];
+            }
+        }
+
+        this.out = new BufferedOutputStream(target, 64 * 1024);
+        write(MAGIC, MAGIC.length);
+    }
+
+    @Override
+    public void writeRow(R row) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columnTypes[i]) {
+                case INTEGER, DATE -> putInt(fixedWidthValues[i], rowGroupRows * 4, columns.get(i).intValue(row));
+                case NUMERIC -> putLong(fixedWidthValues[i], rowGroupRows * 8,
+                        Double.doubleToRawLongBits(columns.get(i).doubleValue(row)));
+                case TEXT -> {
+                    String value = columns.get(i).textValue(row);
+                    byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+                    ByteArrayOutputStream values = variableWidthValues[i];
+                    values.write(bytes.length);
+                    values.write(bytes.length >>> 8);
+                    values.write(bytes.length >>> 16);
+                    values.write(bytes.length >>> 24);
+                    values.write(bytes, 0, bytes.length);
+                }
+            }
+        }
+        rowCount++;
+        if (++rowGroupRows == ROWS_PER_ROW_GROUP) {
+            flushRowGroup();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            if (rowGroupRows > 0) {
+                flushRowGroup();
+            }
+            byte[] footer = fileMetaData();
+            write(footer, footer.length);
+            byte[] footerLength = new byte[4];
+            putInt(footerLength, 0, footer.length);
+            write(footerLength, 4);
+            write(MAGIC, MAGIC.length);
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        RowGroup rowGroup = new RowGroup(rowGroupRows, new long[columns.size()], new long[columns.size()]);
+        for (int i = 0; i < columns.size(); i++) {
+            byte[] values;
+            int length;
+            if (columnTypes[i] == ColumnType.TEXT) {
+                values = variableWidthValues[i].toByteArray();
+                length = values.length;
+                variableWidthValues[i].reset();
+            } else {
+                values = fixedWidthValues[i];
+                length = rowGroupRows * valueWidth(columnTypes[i]);
+            }
+
+            byte[] pageHeader = pageHeader(rowGroupRows, length);
+            rowGroup.offsets[i] = position;
+            rowGroup.sizes[i] = pageHeader.length + length;
+            write(pageHeader, pageHeader.length);
+            write(values, length);
+        }
+        rowGroups.add(rowGroup);
+        rowGroupRows = 0;
+    }
+
+    private byte[] pageHeader(int valueCount, int length) {
+        ThriftCompactWriter thrift = new ThriftCompactWriter();
+        thrift.structBegin();
+        thrift.fieldI32(1, PAGE_TYPE_DATA);
+        thrift.fieldI32(2, length);
+        thrift.fieldI32(3, length);
+        thrift.fieldStruct(5);
+        thrift.fieldI32(1, valueCount);
+        thrift.fieldI32(2, ENCODING_PLAIN);
+        thrift.fieldI32(3, ENCODING_RLE);
+        thrift.fieldI32(4, ENCODING_RLE);
+        thrift.structEnd();
+        thrift.structEnd();
+        return thrift.toByteArray();
+    }
+
+    private byte[] fileMetaData() {
+        ThriftCompactWriter thrift = new ThriftCompactWriter();
+        thrift.structBegin();
+        thrift.fieldI32(1, 1);
+
+        thrift.fieldList(2, ThriftCompactWriter.TYPE_STRUCT, columns.size() + 1);
+        thrift.structBegin();
+        thrift.fieldString(4, "schema");
+        thrift.fieldI32(5, columns.size());
+        thrift.structEnd();
+        for (int i = 0; i < columns.size(); i++) {
+            thrift.structBegin();
+            thrift.fieldI32(1, physicalType(columnTypes[i]));
+            thrift.fieldI32(3, REPETITION_REQUIRED);
+            thrift.fieldString(4, columns.get(i).getHeader());
+            if (columnTypes[i] == ColumnType.DATE) {
+                thrift.fieldI32(6, CONVERTED_DATE);
+            } else if (columnTypes[i] == ColumnType.TEXT) {
+                thrift.fieldI32(6, CONVERTED_UTF8);
+            }
+            thrift.structEnd();
+        }
+
+        thrift.fieldI64(3, rowCount);
+
+        thrift.fieldList(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+        for (RowGroup rowGroup : rowGroups) {
+            long totalSize = 0;
+            thrift.structBegin();
+            thrift.fieldList(1, ThriftCompactWriter.TYPE_STRUCT, columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                totalSize += rowGroup.sizes[i];
+                thrift.structBegin();
+                thrift.fieldI64(2, rowGroup.offsets[i]);
+                thrift.fieldStruct(3);
+                thrift.fieldI32(1, physicalType(columnTypes[i]));
+                thrift.fieldList(2, ThriftCompactWriter.TYPE_I32, 1);
+                thrift.i32(ENCODING_PLAIN);
+                thrift.fieldList(3, ThriftCompactWriter.TYPE_BINARY, 1);
+                thrift.string(columns.get(i).getHeader());
+                thrift.fieldI32(4, CODEC_UNCOMPRESSED);
+                thrift.fieldI64(5, rowGroup.rows);
+                thrift.fieldI64(6, rowGroup.sizes[i]);
+                thrift.fieldI64(7, rowGroup.sizes[i]);
+                thrift.fieldI64(9, rowGroup.offsets[i]);
+                thrift.structEnd();
+                thrift.structEnd();
+            }
+            thrift.fieldI64(2, totalSize);
+            thrift.fieldI64(3, rowGroup.rows);
+            thrift.structEnd();
+        }
+
+        thrift.fieldString(6, "export_data_v2");
+        thrift.structEnd();
+        return thrift.toByteArray();
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        position += length;
+    }
+
+    private static int physicalType(ColumnType type) {
+        return switch (type) {
+            case INTEGER, DATE -> TYPE_INT32;
+            case NUMERIC -> TYPE_DOUBLE;
+            case TEXT -> TYPE_BYTE_ARRAY;
+        };
+    }
+
+    private static int valueWidth(ColumnType type) {
+        return type == ColumnType.NUMERIC ? 8 : 4;
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        target[offset + 2] = (byte) (value >>> 16);
+        target[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static void putLong(byte[] target, int offset, long value) {
+        putInt(target, offset, (int) value);
+        putInt(target, offset + 4, (int) (value >>> 32));
+    }
+
+    private record RowGroup(int rows, long[] offsets, long[] sizes) {
+    }
+}
@@ -0,0 +1,28 @@
+package org.aps.export_data_v2.writer;
+
+import org.aps.export_data_v2.reader.SalaryRow;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class SalaryExportSchema {
+    public static final String TITLE = "Salary Information";
+
+    public static final Map<String, ExportColumn<SalaryRow>> COLUMNS_BY_NAME = columnsByName();
+
+    public static final List<ExportColumn<SalaryRow>> COLUMNS = List.copyOf(COLUMNS_BY_NAME.values());
+
+    private SalaryExportSchema() {
+    }
+
+    private static Map<String, ExportColumn<SalaryRow>> columnsByName() {
+        Map<String, ExportColumn<SalaryRow>> columns = new LinkedHashMap<>();
+        columns.put("emp_no", ExportColumn.integer("Employee ID", SalaryRow::getEmpNo));
+        columns.put("salary", ExportColumn.integer("Salary", SalaryRow::getSalary));
+        columns.put("from_date", ExportColumn.date("From Date", SalaryRow::getFromDateEpochDay));
+        columns.put("to_date", ExportColumn.date("To Date", SalaryRow::getToDateEpochDay));
+        return Collections.unmodifiableMap(columns);
+    }
+}
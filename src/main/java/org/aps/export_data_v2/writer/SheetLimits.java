@@ -0,0 +1,11 @@
+package org.aps.export_data_v2.writer;
+
+public record SheetLimits(int maxRows, long maxBytes) {
+    public static final int XLSX_MAX_ROWS = 1_048_576;
+
+    public SheetLimits {
+        if (maxRows <= 2 || maxRows > XLSX_MAX_ROWS) {
+            maxRows = XLSX_MAX_ROWS;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.aps.export_data_v2.writer;
+
+import org.aps.export_data_v2.constant.ColumnType;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class StreamingXlsxBatchFileWriter<R> implements BatchFileWriter<R> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int STYLE_TITLE = 1;
+    private static final int STYLE_HEADER = 2;
+    private static final int STYLE_DATA = 3;
+    private static final int STYLE_DATE = 4;
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private static final String CONTENT_TYPES = XML_DECLARATION
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+            + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>";
+
+    private static final String ROOT_RELS = XML_DECLARATION
+            + "<Relationships xmlns=\"" + PACKAGE_REL_NS + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>";
+
+
+    private static final String STYLES = XML_DECLARATION
+            + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+            + "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"" + ExcelSheetWriter.DATE_FORMAT + "\"/></numFmts>"
+            + "<fonts count=\"4\">"
+            + "<font><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font>"
+            + "<font><b/><sz val=\"20\"/><name val=\"Calibri\"/><family val=\"2\"/></font>"
+            + "<font><b/><sz val=\"16\"/><name val=\"Calibri\"/><family val=\"2\"/></font>"
+            + "<font><sz val=\"14\"/><name val=\"Calibri\"/><family val=\"2\"/></font>"
+            + "</fonts>"
+            + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+            + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"5\">"
+            + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyAlignment=\"1\"><alignment horizontal=\"center\"/></xf>"
+            + "<xf numFmtId=\"0\" fontId=\"2\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"3\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+            + "<xf numFmtId=\"164\" fontId=\"3\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyNumberFormat=\"1\"/>"
+            + "</cellXfs>"
+            + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+            + "</styleSheet>";
+
+    private static final byte[] ROW_OPEN = ascii("<row r=\"");
+    private static final byte[] ROW_OPEN_END = ascii("\">");
+    private static final byte[] ROW_CLOSE = ascii("</row>");
+    private static final byte[] CELL_OPEN = ascii("<c r=\"");
+    private static final byte[] CELL_STYLE = ascii("\" s=\"");
+    private static final byte[] CELL_VALUE_OPEN = ascii("\"><v>");
+    private static final byte[] CELL_VALUE_CLOSE = ascii("</v></c>");
+    private static final byte[] CELL_INLINE_OPEN = ascii("\" t=\"inlineStr\"><is><t>");
+    private static final byte[] CELL_INLINE_CLOSE = ascii("</t></is></c>");
+    private static final byte[] SHEET_DATA_CLOSE = ascii("</sheetData>");
+    private static final byte[] WORKSHEET_CLOSE = ascii("</worksheet>");
+
+    private final ZipOutputStream zip;
+    private final String title;
+    private final List<ExportColumn<R>> columns;
+    private final byte[][] columnLetters;
+    private final ColumnType[] columnTypes;
+    private final EncodingBuffer out;
+    private final int maxSheetRows;
+    private final long maxSheetBytes;
+    private int sheetCount;
+    private long sheetStartBytes;
+    private int rowNumber;
+    private int rowCount;
+
+    public StreamingXlsxBatchFileWriter(OutputStream target, String title, List<ExportColumn<R>> columns,
+                                        SheetLimits limits) throws IOException {
+        this.zip = new ZipOutputStream(new BufferedOutputStream(target, BUFFER_SIZE));
+        this.out = new EncodingBuffer(zip, BUFFER_SIZE);
+        this.maxSheetRows = limits.maxRows();
+        this.maxSheetBytes = limits.maxBytes();
+        this.title = title;
+        this.columns = List.copyOf(columns);
+        this.columnLetters = new byte[columns.size()][];
+        this.columnTypes = new ColumnType[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            columnLetters[i] = ascii(columnName(i));
+            columnTypes[i] = columns.get(i).getType();
+        }
+
+        try {
+            startSheet();
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void writeRow(R row) throws IOException {
+        if (rowNumber >= maxSheetRows || (maxSheetBytes > 0 && out.size() - sheetStartBytes >= maxSheetBytes)) {
+            finishSheet();
+            startSheet();
+        }
+        openRow();
+        for (int i = 0; i < columnTypes.length; i++) {
+            ExportColumn<R> column = columns.get(i);
+            switch (columnTypes[i]) {
+                case INTEGER -> {
+                    openNumericCell(i, STYLE_DATA);
+                    out.appendInt(column.intValue(row));
+                    out.append(CELL_VALUE_CLOSE);
+                }
+                case DATE -> {
+                    openNumericCell(i, STYLE_DATE);
+                    out.appendInt(column.intValue(row) + ExcelSheetWriter.EXCEL_EPOCH_DAY_OFFSET);
+                    out.append(CELL_VALUE_CLOSE);
+                }
+                case NUMERIC -> {
+                    openNumericCell(i, STYLE_DATA);
+                    out.appendDouble(column.doubleValue(row));
+                    out.append(CELL_VALUE_CLOSE);
+                }
+                case TEXT -> inlineStringCell(i, STYLE_DATA, column.textValue(row));
+            }
+        }
+        closeRow();
+        rowCount++;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (zip) {
+            finishSheet();
+            writePackageParts();
+        }
+    }
+
+    private void startSheet() throws IOException {
+        sheetCount++;
+        rowNumber = 0;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetCount + ".xml"));
+        sheetStartBytes = out.size();
+        out.appendLarge(XML_DECLARATION + "<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>");
+        writeHeaderRows();
+    }
+
+    private void finishSheet() throws IOException {
+        out.ensureCapacity();
+        out.append(SHEET_DATA_CLOSE);
+        if (columns.size() > 1) {
+            out.appendLarge("<mergeCells count=\"1\"><mergeCell ref=\"A1:" + columnName(columns.size() - 1) + "1\"/></mergeCells>");
+        }
+        out.append(WORKSHEET_CLOSE);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private void writePackageParts() throws IOException {
+        StringBuilder contentTypes = new StringBuilder(CONTENT_TYPES);
+        StringBuilder sheets = new StringBuilder();
+        StringBuilder workbookRels = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(PACKAGE_REL_NS).append("\">");
+        for (int sheet = 1; sheet <= sheetCount; sheet++) {
+            contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(sheet)
+                    .append(".xml\" ContentType=\"").append(ExcelSheetWriter.WORKSHEET_CONTENT_TYPE).append("\"/>");
+            sheets.append("<sheet name=\"").append(escape(ExcelSheetWriter.sheetName(title, sheet)))
+                    .append("\" sheetId=\"").append(sheet).append("\" r:id=\"rId").append(sheet).append("\"/>");
+            workbookRels.append("<Relationship Id=\"rId").append(sheet).append("\" Type=\"").append(REL_NS)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(sheet).append(".xml\"/>");
+        }
+        workbookRels.append("<Relationship Id=\"rId").append(sheetCount + 1).append("\" Type=\"").append(REL_NS)
+                .append("/styles\" Target=\"styles.xml\"/></Relationships>");
+
+        writeEntry("[Content_Types].xml", contentTypes.append("</Types>").toString());
+        writeEntry("_rels/.rels", ROOT_RELS);
+        writeEntry("xl/workbook.xml", XML_DECLARATION
+                + "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>" + sheets + "</sheets></workbook>");
+        writeEntry("xl/_rels/workbook.xml.rels", workbookRels.toString());
+        writeEntry("xl/styles.xml", STYLES);
+    }
+
+    private void writeHeaderRows() throws IOException {
+        openRow();
+        inlineStringCell(0, STYLE_TITLE, title);
+        closeRow();
+
+        openRow();
+        for (int i = 0; i < columns.size(); i++) {
+            inlineStringCell(i, STYLE_HEADER, columns.get(i).getHeader());
+        }
+        closeRow();
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private void openRow() throws IOException {
+        out.ensureCapacity();
+        rowNumber++;
+        out.append(ROW_OPEN);
+        out.appendInt(rowNumber);
+        out.append(ROW_OPEN_END);
+    }
+
+    private void closeRow() {
+        out.append(ROW_CLOSE);
+    }
+
+    private void openNumericCell(int column, int style) throws IOException {
+        appendCellStart(column, style);
+        out.append(CELL_VALUE_OPEN);
+    }
+
+    private void inlineStringCell(int column, int style, String value) throws IOException {
+        appendCellStart(column, style);
+        out.append(CELL_INLINE_OPEN);
+        out.appendXmlEscaped(value == null ? "" : value);
+        out.append(CELL_INLINE_CLOSE);
+    }
+
+    private void appendCellStart(int column, int style) throws IOException {
+        out.ensureCapacity();
+        out.append(CELL_OPEN);
+        out.append(columnLetters[column]);
+        out.appendInt(rowNumber);
+        out.append(CELL_STYLE);
+        out.appendInt(style);
+    }
+
+    private static String columnName(int index) {
+        StringBuilder name = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26) {
+            name.insert(0, (char) ('A' + (i - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static byte[] ascii(String value) {
+        return EncodingBuffer.ascii(value);
+    }
+}
@@ -0,0 +1,45 @@
+package org.aps.export_data_v2.writer;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public class SxssfBatchFileWriter<R> implements BatchFileWriter<R> {
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook;
+    private final ExcelSheetWriter<R> sheetWriter;
+    private final int maxSheetRows;
+    private int rowCount;
+
+    public SxssfBatchFileWriter(OutputStream out, int rowAccessWindow, String title, List<ExportColumn<R>> columns,
+                                SheetLimits limits, boolean compressTempFiles) {
+        this.out = out;
+        this.workbook = new SXSSFWorkbook(rowAccessWindow);
+        this.workbook.setCompressTempFiles(compressTempFiles);
+        this.sheetWriter = new ExcelSheetWriter<>(workbook, title, columns);
+        this.maxSheetRows = limits.maxRows();
+    }
+
+    @Override
+    public void writeRow(R row) {
+        if (sheetWriter.getRowIndex() >= maxSheetRows) {
+            sheetWriter.startSheet();
+        }
+        sheetWriter.writeRow(row);
+        rowCount++;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out; workbook) {
+            workbook.write(out);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.aps.export_data_v2.writer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+class ThriftCompactWriter {
+    static final byte TYPE_I32 = 5;
+    static final byte TYPE_I64 = 6;
+    static final byte TYPE_BINARY = 8;
+    static final byte TYPE_LIST = 9;
+    static final byte TYPE_STRUCT = 12;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final short[] lastFieldIds = new short[16];
+    private int depth;
+
+    void structBegin() {
+        lastFieldIds[++depth] = 0;
+    }
+
+    void structEnd() {
+        out.write(0);
+        depth--;
+    }
+
+    void fieldI32(int id, int value) {
+        fieldHeader(id, TYPE_I32);
+        varint(zigzag(value));
+    }
+
+    void fieldI64(int id, long value) {
+        fieldHeader(id, TYPE_I64);
+        varint(zigzag(value));
+    }
+
+    void fieldString(int id, String value) {
+        fieldHeader(id, TYPE_BINARY);
+        string(value);
+    }
+
+    void fieldStruct(int id) {
+        fieldHeader(id, TYPE_STRUCT);
+        structBegin();
+    }
+
+    void fieldList(int id, byte elementType, int size) {
+        fieldHeader(id, TYPE_LIST);
+        listHeader(elementType, size);
+    }
+
+    void listHeader(byte elementType, int size) {
+        if (size < 15) {
+            out.write((size << 4) | elementType);
+        } else {
+            out.write(0xF0 | elementType);
+            varint(size);
+        }
+    }
+
+    void i32(int value) {
+        varint(zigzag(value));
+    }
+
+    void string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    private void fieldHeader(int id, byte type) {
+        int delta = id - lastFieldIds[depth];
+        if (delta > 0 && delta <= 15) {
+            out.write((delta << 4) | type);
+        } else {
+            out.write(type);
+            varint(zigzag(id));
+        }
+        lastFieldIds[depth] = (short) id;
+    }
+
+    private void varint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,116 @@
+package org.aps.export_data_v2;
+
+import org.aps.export_data_v2.constant.ExecutionMode;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.reader.ShardedReadSupport;
+import org.aps.export_data_v2.reader.SnapshotSessionRegistry;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExportBatchDispatcherTest {
+
+    @Test
+    void runsEveryBatchOnceInBothModes() throws Exception {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            Set<Long> processed = ConcurrentHashMap.newKeySet();
+            run(mode, 4, 10, 0, processed);
+
+            assertEquals(40, processed.size(), mode.name());
+        }
+    }
+
+    // Batches spend most of their time blocked on MySQL and the disk, which the sleep stands in for. PLATFORM runs
+    // as many batches as it has pool threads, VIRTUAL as many as the connection pool allows.
+    // Run with: mvn test -Dtest=ExportBatchDispatcherTest -Dsurefire.excludedGroups= -Dgroups=benchmark
+    @Test
+    @Tag("benchmark")
+    void benchmarkExecutionModes() throws Exception {
+        for (int round = 0; round < 3; round++) {
+            for (ExecutionMode mode : ExecutionMode.values()) {
+                long elapsed = run(mode, 20, 20, 20, ConcurrentHashMap.newKeySet());
+                System.out.printf("%-8s 400 batches of 20 jobs in %d ms%n", mode, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+
+    private static long run(ExecutionMode mode, int jobs, int batchesPerJob, long blockedMillis, Set<Long> processed)
+            throws Exception {
+        ExportExcelService exportExcelService = mock(ExportExcelService.class);
+        ExportBatchRepository exportBatchRepository = mock(ExportBatchRepository.class);
+        ExportBatchLeaseManager exportBatchLeaseManager = mock(ExportBatchLeaseManager.class);
+        ShardedReadSupport shardedReadSupport = mock(ShardedReadSupport.class);
+
+        Map<Long, Queue<Long>> pending = new ConcurrentHashMap<>();
+        for (long job = 1; job <= jobs; job++) {
+            Queue<Long> batches = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < batchesPerJob; i++) {
+                batches.add(job * 1_000 + i);
+            }
+            pending.put(job, batches);
+        }
+        when(exportBatchLeaseManager.lease(anyLong()))
+                .thenAnswer(invocation -> pending.get(invocation.<Long>getArgument(0)).poll());
+        when(exportBatchRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(ExportBatch.builder().id(invocation.getArgument(0)).build()));
+        doAnswer(invocation -> {
+            Thread.sleep(blockedMillis);
+            processed.add(invocation.<ExportBatch>getArgument(0).getId());
+            return null;
+        }).when(exportExcelService).processBatch(any());
+        CountDownLatch finished = new CountDownLatch(jobs);
+        Set<Long> finishedJobs = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            Long jobId = invocation.getArgument(0);
+            if (pending.get(jobId).isEmpty() && finishedJobs.add(jobId)) {
+                finished.countDown();
+            }
+            return null;
+        }).when(exportExcelService).finalizeIfComplete(anyLong());
+        when(shardedReadSupport.getShardConnections()).thenReturn(0);
+
+        ExportBatchPlanner exportBatchPlanner = mock(ExportBatchPlanner.class);
+        when(exportBatchPlanner.planNext(anyLong(), anyInt())).thenReturn(List.of());
+        ExportBatchDispatcher dispatcher = new ExportBatchDispatcher(exportExcelService, mock(ExportJobRepository.class),
+                exportBatchRepository, exportBatchPlanner, mock(SnapshotSessionRegistry.class),
+                exportBatchLeaseManager, shardedReadSupport);
+        ReflectionTestUtils.setField(dispatcher, "MAX_CONCURRENT_BATCHES", 5);
+        ReflectionTestUtils.setField(dispatcher, "MAX_CONCURRENT_BATCHES_PER_JOB", 2);
+        ReflectionTestUtils.setField(dispatcher, "EXECUTION_MODE", mode);
+        ReflectionTestUtils.setField(dispatcher, "CONNECTION_POOL_SIZE", 50);
+        ReflectionTestUtils.setField(dispatcher, "RESERVED_CONNECTIONS", 10);
+        dispatcher.init();
+
+        long start = System.nanoTime();
+        try {
+            for (long job = 1; job <= jobs; job++) {
+                dispatcher.submit(job);
+            }
+            assertTrue(finished.await(1, TimeUnit.MINUTES), mode.name());
+            return System.nanoTime() - start;
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+}
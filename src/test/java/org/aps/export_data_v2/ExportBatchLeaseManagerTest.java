@@ -0,0 +1,67 @@
+package org.aps.export_data_v2;
+
+import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExportBatchLeaseManagerTest {
+
+    private ExportBatchRepository exportBatchRepository;
+    private ExportJobRepository exportJobRepository;
+    private ExportBatchLeaseManager leaseManager;
+
+    @BeforeEach
+    void setUp() {
+        exportBatchRepository = mock(ExportBatchRepository.class);
+        exportJobRepository = mock(ExportJobRepository.class);
+        leaseManager = new ExportBatchLeaseManager(exportBatchRepository, exportJobRepository);
+        ReflectionTestUtils.setField(leaseManager, "MAX_RETRIES", 3);
+    }
+
+    @Test
+    void reclaimCountsAsAFailedAttempt() {
+        ExportJob job = ExportJob.builder().id(7L).build();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusMinutes(5);
+        List<ExportBatch> stale = List.of(
+                ExportBatch.builder().id(1L).exportJob(job).retryCount(0).build(),
+                ExportBatch.builder().id(2L).exportJob(job).retryCount(2).build());
+        when(exportBatchRepository.findStaleBatchesForUpdate(BatchStatus.IN_PROGRESS, staleBefore, now))
+                .thenReturn(stale);
+
+        assertEquals(stale, leaseManager.reclaimStale(staleBefore, now));
+
+        verify(exportBatchRepository).reclaimStaleBatches(eq(List.of(1L, 2L)), eq(BatchStatus.IN_PROGRESS),
+                eq(BatchStatus.FAILED), any(), eq(now));
+        verify(exportJobRepository).incrementFailedBatches(7L);
+    }
+
+    @Test
+    void reclaimSkipsTheUpdateWhenNothingIsStale() {
+        LocalDateTime now = LocalDateTime.now();
+        when(exportBatchRepository.findStaleBatchesForUpdate(any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(List.of(), leaseManager.reclaimStale(now.minusMinutes(5), now));
+
+        verify(exportBatchRepository, never()).reclaimStaleBatches(anyList(), any(), any(), any(), any());
+        verify(exportJobRepository, never()).incrementFailedBatches(anyLong());
+    }
+}
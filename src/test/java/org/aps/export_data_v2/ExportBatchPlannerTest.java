@@ -0,0 +1,65 @@
+package org.aps.export_data_v2;
+
+import org.aps.export_data_v2.definition.ExportDefinitionRegistry;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExportBatchPlannerTest {
+
+    private ExportDefinitionRegistry exportDefinitionRegistry;
+    private ExportJobRepository exportJobRepository;
+    private ExportBatchRepository exportBatchRepository;
+    private ExportBatchPlanner planner;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        exportDefinitionRegistry = mock(ExportDefinitionRegistry.class, RETURNS_DEEP_STUBS);
+        exportJobRepository = mock(ExportJobRepository.class);
+        exportBatchRepository = mock(ExportBatchRepository.class);
+        planner = new ExportBatchPlanner(exportDefinitionRegistry,
+                exportJobRepository, exportBatchRepository);
+        ReflectionTestUtils.setField(planner, "BATCH_SIZE", 100);
+        ReflectionTestUtils.setField(planner, "MIN_BATCH_SIZE", 10);
+        ReflectionTestUtils.setField(planner, "MAX_BATCH_SIZE", 1_000);
+        ExportJob job = ExportJob.builder().id(1L).jobUniqueId("job").exportType("salary").totalBatches(0)
+                .planningComplete(false).nextStartKey(0).maxKey(50).initialBatchSize(100).build();
+        when(exportJobRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(job));
+        when(exportDefinitionRegistry.forExportType("salary").getReader().findBoundaryKey(any(), anyInt(), anyInt()))
+                .thenReturn(20, 40, 60);
+    }
+
+    @Test
+    void savesBatchesOnceThePlanIsAdvanced() {
+        when(exportJobRepository.advancePlan(1L, 0, 50, 3, true)).thenReturn(1);
+
+        assertEquals(3, planner.planNext(1L, 4).size());
+        verify(exportBatchRepository).saveAll(any());
+    }
+
+    @Test
+    void returnsNothingWhenAnotherPlannerAdvancedThePlan() {
+        when(exportJobRepository.advancePlan(eq(1L), eq(0), anyInt(), anyInt(), anyBoolean())).thenReturn(0);
+
+        assertTrue(planner.planNext(1L, 4).isEmpty());
+        verify(exportBatchRepository, never()).saveAll(any());
+    }
+}
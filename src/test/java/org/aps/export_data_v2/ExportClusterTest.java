@@ -0,0 +1,93 @@
+package org.aps.export_data_v2;
+
+import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.constant.ExportMode;
+import org.aps.export_data_v2.constant.ExportStatus;
+import org.aps.export_data_v2.constant.WorkbookLayout;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportClusterTest {
+    @TempDir
+    Path sharedStorage;
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void nodesShareBatchesOfOneJobAndAssembleItOnce() throws Exception {
+        ConfigurableApplicationContext nodeA = startNode("node-a");
+        ConfigurableApplicationContext nodeB = startNode("node-b");
+
+        ExportJob job = nodeA.getBean(ExportExcelService.class).createExportJob("EMPLOYEE", ExportFormat.CSV,
+                ExportMode.FULL, false, null, null, WorkbookLayout.ARCHIVE);
+        nodeA.getBean(ExportBatchDispatcher.class).submit(job.getId());
+        nodeB.getBean(ExportBatchDispatcher.class).submit(job.getId());
+
+        ExportJobRepository exportJobRepository = nodeB.getBean(ExportJobRepository.class);
+        Instant deadline = Instant.now().plus(Duration.ofMinutes(5));
+        ExportJob finished = exportJobRepository.findById(job.getId()).orElseThrow();
+        while ((finished.getCompletedAt() == null || finished.getResultFileUrl() == null) && Instant.now().isBefore(deadline)) {
+            Thread.sleep(500);
+            finished = exportJobRepository.findById(job.getId()).orElseThrow();
+        }
+
+        assertEquals(ExportStatus.COMPLETED, finished.getStatus());
+        assertEquals(finished.getTotalBatches(), finished.getProcessedBatches());
+        List<ExportBatch> batches = nodeB.getBean(ExportBatchRepository.class)
+                .findByExportJobIdAndStatus(job.getId(), BatchStatus.COMPLETED);
+        assertEquals(finished.getTotalBatches(), batches.size());
+        Set<String> owners = batches.stream().map(ExportBatch::getLeaseOwner).collect(Collectors.toSet());
+        assertTrue(Set.of("node-a", "node-b").containsAll(owners));
+
+        assertNotNull(finished.getResultFileUrl());
+        try (ZipFile archive = new ZipFile(finished.getResultFileUrl())) {
+            assertEquals(finished.getTotalBatches(), archive.size());
+        }
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        ConfigurableApplicationContext node = new SpringApplicationBuilder(ExportDataV2Application.class)
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "app.cluster.enabled=true",
+                        "app.cluster.node-id=" + nodeId,
+                        "app.cluster.lease-seconds=30",
+                        "app.cluster.heartbeat-interval-ms=1000",
+                        "app.cluster.poll-interval-ms=200",
+                        "app.export.batch-size=20000",
+                        "app.export.adaptive.min-batch-size=20000",
+                        "app.export.adaptive.max-batch-size=20000",
+                        "app.storage.cache.enabled=false",
+                        "app.storage.base-path=" + sharedStorage,
+                        "app.storage.temp-path=" + sharedStorage.resolve("tmp-" + nodeId))
+                .run();
+        nodes.add(node);
+        return node;
+    }
+}
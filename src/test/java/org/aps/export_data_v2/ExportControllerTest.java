@@ -0,0 +1,62 @@
+package org.aps.export_data_v2;
+
+import org.aps.export_data_v2.definition.ExportDefinitionRegistry;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ExportControllerTest {
+    private static final long STREAM_TIMEOUT_MS = 45_000;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ExportExcelService exportExcelService = mock(ExportExcelService.class);
+        ExportDownloadService exportDownloadService = mock(ExportDownloadService.class);
+        when(exportExcelService.getJobStatus("job")).thenReturn(ExportJob.builder().jobUniqueId("job").build());
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("zip".getBytes(StandardCharsets.US_ASCII));
+            return null;
+        }).when(exportDownloadService).streamArchive(eq("job"), any());
+
+        ExportController controller = new ExportController(exportExcelService, exportDownloadService,
+                mock(ExportBatchDispatcher.class), mock(ExportResultCache.class), mock(ExportDefinitionRegistry.class),
+                mock(ExportStorageManager.class), mock(ExportJobScheduler.class));
+        ReflectionTestUtils.setField(controller, "STREAM_TIMEOUT_MS", STREAM_TIMEOUT_MS);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void streamingDownloadSetsItsOwnAsyncTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/exports/job/download/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(STREAM_TIMEOUT_MS, result.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"export_job.zip\""))
+                .andExpect(content().bytes("zip".getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,132 @@
+package org.aps.export_data_v2;
+
+import org.aps.export_data_v2.constant.BatchStatus;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.constant.ExportStatus;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportBatchRepository;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.aps.export_data_v2.storage.StorageSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExportDownloadServiceTest {
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    private ExportJobRepository exportJobRepository;
+    private ExportBatchRepository exportBatchRepository;
+    private ExportDownloadService downloadService;
+    private ExportJob job;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        exportJobRepository = mock(ExportJobRepository.class);
+        exportBatchRepository = mock(ExportBatchRepository.class);
+        downloadService = new ExportDownloadService(exportJobRepository, exportBatchRepository, mock(StorageSink.class));
+        file = Files.write(directory.resolve("job_final.zip"), CONTENT);
+        job = ExportJob.builder().id(1L).jobUniqueId("job").exportFormat(ExportFormat.CSV)
+                .resultFileUrl(file.toString()).build();
+    }
+
+    @Test
+    void servesSatisfiableRange() throws IOException {
+        MockHttpServletResponse response = download("bytes=2-5");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals("2345".getBytes(StandardCharsets.US_ASCII), response.getContentAsByteArray());
+    }
+
+    @Test
+    void ignoresMalformedRange() throws IOException {
+        for (String range : new String[]{"bytes=abc", "items=0-1", "bytes=5-2"}) {
+            MockHttpServletResponse response = download(range);
+
+            assertEquals(200, response.getStatus(), range);
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertArrayEquals(CONTENT, response.getContentAsByteArray(), range);
+        }
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws IOException {
+        MockHttpServletResponse response = download("bytes=10-20");
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void honoursIfRangeOnlyForTheExactModificationDate() throws IOException {
+        Instant modified = Instant.parse("2026-03-01T10:15:30.250Z");
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+
+        assertEquals(206, download("bytes=2-5", httpDate(modified)).getStatus());
+        assertEquals(200, download("bytes=2-5", httpDate(modified.plusSeconds(1))).getStatus());
+        assertEquals(200, download("bytes=2-5", httpDate(modified.minusSeconds(1))).getStatus());
+    }
+
+    @Test
+    void failsStreamInsteadOfSkippingBatchesWithoutAFile() {
+        job.setStatus(ExportStatus.COMPLETED);
+        when(exportJobRepository.findByJobUniqueId("job")).thenReturn(Optional.of(job));
+        ExportBatch missing = ExportBatch.builder().batchNumber(0)
+                .partialFilePath(directory.resolve("job_batch_0.csv").toString()).build();
+        when(exportBatchRepository.findByExportJobIdAndStatusOrderByBatchNumber(1L, BatchStatus.COMPLETED))
+                .thenReturn(List.of(missing));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        IOException failure = assertThrows(IOException.class, () -> downloadService.streamArchive("job", out));
+
+        assertTrue(failure.getMessage().contains("[0]"), failure.getMessage());
+        assertEquals(0, out.size());
+    }
+
+    private MockHttpServletResponse download(String range) throws IOException {
+        return download(range, null);
+    }
+
+    private MockHttpServletResponse download(String range, String ifRange) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/exports/job/download");
+        request.addHeader(HttpHeaders.RANGE, range);
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        downloadService.serveFile(job, request, response);
+        return response;
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+}
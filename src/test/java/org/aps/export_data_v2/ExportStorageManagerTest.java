@@ -0,0 +1,99 @@
+package org.aps.export_data_v2;
+
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.repository.ExportJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExportStorageManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private ExportResultCache exportResultCache;
+    private ExportJobRepository exportJobRepository;
+    private ExportStorageManager storageManager;
+
+    @BeforeEach
+    void setUp() {
+        exportResultCache = mock(ExportResultCache.class);
+        exportJobRepository = mock(ExportJobRepository.class);
+        storageManager = new ExportStorageManager(exportResultCache, exportJobRepository);
+        ReflectionTestUtils.setField(storageManager, "basePath", directory.toString());
+        ReflectionTestUtils.setField(storageManager, "QUOTA_BYTES", 1_000L);
+        ReflectionTestUtils.setField(storageManager, "DELETE_BATCH_FILES", true);
+    }
+
+    @Test
+    void countsWritesAndDeletesWithoutWalkingTheBasePath() throws IOException {
+        Path batchFile = Files.write(Files.createDirectories(directory.resolve("job")).resolve("job_batch_0.csv"),
+                new byte[300]);
+        storageManager.recordWrite("job", 300);
+        assertEquals(300, storageManager.jobUsage("job"));
+
+        storageManager.deleteBatchFiles(List.of(ExportBatch.builder().partialFilePath(batchFile.toString()).build()));
+
+        assertEquals(0, storageManager.jobUsage("job"));
+        assertEquals(0L, storageManager.stats().get("usedBytes"));
+    }
+
+    @Test
+    void rejectsReservationsOverQuotaAfterEvicting() {
+        when(exportResultCache.evict(anyLong())).thenReturn(600L);
+        storageManager.recordWrite("finished", 600);
+
+        assertThrows(RuntimeException.class, () -> storageManager.reserve("job", 500));
+        assertDoesNotThrow(() -> storageManager.reserve("job", 400));
+        assertThrows(RuntimeException.class, () -> storageManager.reserve("other", 1));
+
+        storageManager.recordWrite("job", 150);
+        assertDoesNotThrow(() -> storageManager.reserve("other", 100));
+    }
+
+    @Test
+    void doesNotEvictForReservationsThatCannotFit() {
+        storageManager.recordWrite("finished", 100);
+        storageManager.reserve("running", 800);
+
+        assertThrows(RuntimeException.class, () -> storageManager.reserve("job", 300));
+        assertThrows(RuntimeException.class, () -> storageManager.reserve("huge", 1_001));
+
+        verify(exportResultCache, never()).evict(anyLong());
+    }
+
+    @Test
+    void rescanMeasuresDiskAndRestoresPersistedReservations() throws IOException {
+        Files.write(Files.createDirectories(directory.resolve("done")).resolve("done_final.zip"), new byte[200]);
+        ExportJob running = ExportJob.builder().jobUniqueId("running").reservedBytes(700L).build();
+        when(exportJobRepository.findByReservedBytesIsNotNullAndCompletedAtIsNull()).thenReturn(List.of(running));
+        when(exportResultCache.evict(anyLong())).thenReturn(200L);
+
+        storageManager.rescan();
+
+        assertEquals(200L, storageManager.stats().get("usedBytes"));
+        assertEquals(700L, storageManager.stats().get("reservedBytes"));
+        assertThrows(RuntimeException.class, () -> storageManager.reserve("job", 101));
+
+        storageManager.release("running");
+        when(exportJobRepository.findByReservedBytesIsNotNullAndCompletedAtIsNull()).thenReturn(List.of());
+        storageManager.rescan();
+        assertEquals(0L, storageManager.stats().get("reservedBytes"));
+    }
+}
@@ -0,0 +1,129 @@
+package org.aps.export_data_v2.archive;
+
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DeltaSnapshotMergerTest {
+    private static final String HEADER = "emp_no,salary";
+
+    @TempDir
+    Path directory;
+
+    private DeltaSnapshotMerger merger;
+
+    @BeforeEach
+    void setUp() {
+        merger = new DeltaSnapshotMerger();
+        ReflectionTestUtils.setField(merger, "basePath", directory.toString());
+    }
+
+    @Test
+    void replacesChangedKeysAndInsertsNewOnes() throws IOException {
+        ExportJob base = baseJob(ExportFormat.CSV,
+                lines("1,100", "2,200", "2,210", "5,500"),
+                lines("7,700"),
+                lines("9,900", "12,1200"));
+        ExportJob delta = job("delta", ExportFormat.CSV);
+        List<ExportBatch> batches = List.of(
+                deltaBatch(delta, 1, lines("9,990", "15,1500")),
+                deltaBatch(delta, 0, lines("0,50", "2,250", "6,600")));
+
+        Path merged = merger.merge(delta, base, batches);
+
+        assertEquals(List.of(HEADER, "0,50", "1,100", "2,250", "5,500", "6,600", "7,700", "9,990", "12,1200",
+                "15,1500"), read(merged, ExportFormat.CSV));
+    }
+
+    @Test
+    void mergesGzipSnapshots() throws IOException {
+        ExportJob base = baseJob(ExportFormat.CSV_GZ, lines("1,100", "3,300"));
+        ExportJob delta = job("delta", ExportFormat.CSV_GZ);
+
+        Path merged = merger.merge(delta, base, List.of(deltaBatch(delta, 0, lines("3,330", "4,400"))));
+
+        assertEquals(List.of(HEADER, "1,100", "3,330", "4,400"), read(merged, ExportFormat.CSV_GZ));
+    }
+
+    @Test
+    void rejectsMismatchedFormats() throws IOException {
+        ExportJob base = baseJob(ExportFormat.CSV, lines("1,100"));
+        ExportJob delta = job("delta", ExportFormat.CSV_GZ);
+
+        assertThrows(IOException.class, () -> merger.merge(delta, base, List.of()));
+    }
+
+    private ExportJob baseJob(ExportFormat format, String... batches) throws IOException {
+        ExportJob base = job("base", format);
+        Path archive = directory.resolve("base").resolve("base_final.zip");
+        // Entries are stored out of order and batch 10 must sort after batch 2 numerically, not lexically
+        try (ZipArchiveWriter writer = ZipArchiveWriter.create(archive)) {
+            for (int i = batches.length - 1; i >= 0; i--) {
+                writer.addStored("base_batch_" + (i == 0 ? 0 : i == 1 ? 2 : 10) + "." + format.getFileExtension(),
+                        encode(batches[i], format));
+            }
+        }
+        base.setResultFileUrl(archive.toString());
+        return base;
+    }
+
+    private ExportJob job(String jobId, ExportFormat format) throws IOException {
+        Files.createDirectories(directory.resolve(jobId));
+        return ExportJob.builder().jobUniqueId(jobId).exportFormat(format).build();
+    }
+
+    private ExportBatch deltaBatch(ExportJob job, int batchNumber, String content) throws IOException {
+        ExportFormat format = job.resolveExportFormat();
+        Path file = directory.resolve(job.getJobUniqueId())
+                .resolve(job.getJobUniqueId() + "_batch_" + batchNumber + "." + format.getFileExtension());
+        Files.write(file, encode(content, format));
+        return ExportBatch.builder().batchNumber(batchNumber).partialFilePath(file.toString()).build();
+    }
+
+    private static String lines(String... rows) {
+        StringBuilder content = new StringBuilder(HEADER).append("\r\n");
+        for (String row : rows) {
+            content.append(row).append("\r\n");
+        }
+        return content.toString();
+    }
+
+    private static byte[] encode(String content, ExportFormat format) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (format != ExportFormat.CSV_GZ) {
+            return bytes;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static List<String> read(Path file, ExportFormat format) throws IOException {
+        try (InputStream in = Files.newInputStream(file);
+             InputStream source = format == ExportFormat.CSV_GZ ? new GZIPInputStream(in) : in) {
+            String content = new String(source.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("\r\n", content.substring(content.length() - 2));
+            return List.of(content.split("\r\n"));
+        }
+    }
+}
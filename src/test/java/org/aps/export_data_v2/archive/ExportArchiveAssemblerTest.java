@@ -0,0 +1,110 @@
+package org.aps.export_data_v2.archive;
+
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportArchiveAssemblerTest {
+    private static final String JOB_ID = "job";
+
+    @TempDir
+    Path directory;
+
+    private ExportArchiveAssembler assembler;
+    private ExportJob job;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assembler = new ExportArchiveAssembler();
+        ReflectionTestUtils.setField(assembler, "basePath", directory.toString());
+        Files.createDirectories(directory.resolve(JOB_ID));
+        job = ExportJob.builder().jobUniqueId(JOB_ID).exportFormat(ExportFormat.CSV).build();
+    }
+
+    @Test
+    void finishWritesAppendedAndRemainingBatches() throws IOException {
+        ExportBatch first = batch(0, "emp_no\r\n1\r\n");
+        ExportBatch second = batch(1, "emp_no\r\n2\r\n");
+        assembler.append(job, first);
+
+        Path archive = Path.of(assembler.finish(job, List.of(first, second)));
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(2, zip.size());
+            assertArrayEquals(Files.readAllBytes(Path.of(second.getPartialFilePath())),
+                    read(zip, Path.of(second.getPartialFilePath()).getFileName().toString()));
+        }
+    }
+
+    @Test
+    void appendAfterFinishDoesNotReopenArchive() throws IOException {
+        ExportBatch first = batch(0, "emp_no\r\n1\r\n");
+        Path archive = Path.of(assembler.finish(job, List.of(first)));
+        long size = Files.size(archive);
+
+        assembler.append(job, batch(1, "emp_no\r\n2\r\n"));
+
+        assertFalse(Files.exists(partPath()));
+        assertEquals(size, Files.size(archive));
+    }
+
+    @Test
+    void failedFinishClosesAndRemovesPartFile() throws IOException {
+        ExportBatch first = batch(0, "emp_no\r\n1\r\n");
+        assembler.append(job, first);
+        ExportBatch broken = ExportBatch.builder().batchNumber(1)
+                .partialFilePath(Files.createDirectories(directory.resolve(JOB_ID).resolve("broken.csv")).toString())
+                .build();
+
+        assertThrows(IOException.class, () -> assembler.finish(job, List.of(first, broken)));
+
+        assertFalse(Files.exists(partPath()));
+        assertFalse(Files.exists(directory.resolve(JOB_ID).resolve(JOB_ID + "_final.zip")));
+    }
+
+    @Test
+    void finishFailsWhenACompletedBatchFileIsMissing() throws IOException {
+        ExportBatch first = batch(0, "emp_no\r\n1\r\n");
+        ExportBatch missing = ExportBatch.builder().batchNumber(1)
+                .partialFilePath(directory.resolve(JOB_ID).resolve(JOB_ID + "_batch_1.csv").toString()).build();
+
+        IOException failure = assertThrows(IOException.class, () -> assembler.finish(job, List.of(first, missing)));
+
+        assertTrue(failure.getMessage().contains("Batch 1"), failure.getMessage());
+        assertFalse(Files.exists(directory.resolve(JOB_ID).resolve(JOB_ID + "_final.zip")));
+    }
+
+    private ExportBatch batch(int batchNumber, String content) throws IOException {
+        Path file = directory.resolve(JOB_ID).resolve(JOB_ID + "_batch_" + batchNumber + ".csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return ExportBatch.builder().batchNumber(batchNumber).partialFilePath(file.toString()).build();
+    }
+
+    private Path partPath() {
+        return directory.resolve(JOB_ID).resolve(JOB_ID + "_final.zip.part");
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+}
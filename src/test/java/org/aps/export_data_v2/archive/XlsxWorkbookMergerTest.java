@@ -0,0 +1,203 @@
+package org.aps.export_data_v2.archive;
+
+import org.apache.poi.common.usermodel.HyperlinkType;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.aps.export_data_v2.writer.ExportColumn;
+import org.aps.export_data_v2.writer.SheetLimits;
+import org.aps.export_data_v2.writer.StreamingXlsxBatchFileWriter;
+import org.aps.export_data_v2.writer.SxssfBatchFileWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openxmlformats.schemas.officeDocument.x2006.extendedProperties.CTProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XlsxWorkbookMergerTest {
+    private static final String JOB_ID = "job";
+    private static final String TITLE = "Payroll";
+    private static final List<ExportColumn<Integer>> COLUMNS = List.of(
+            ExportColumn.integer("emp_no", Integer::intValue),
+            ExportColumn.text("name", id -> "Employee " + id));
+
+    @TempDir
+    Path directory;
+
+    private XlsxWorkbookMerger merger;
+    private ExportJob job;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        merger = new XlsxWorkbookMerger();
+        ReflectionTestUtils.setField(merger, "basePath", directory.toString());
+        Files.createDirectories(directory.resolve(JOB_ID));
+        job = ExportJob.builder().jobUniqueId(JOB_ID).exportFormat(ExportFormat.EXCEL).build();
+    }
+
+    @Test
+    void mergesSheetsInBatchOrderAndRegeneratesAppProperties() throws IOException {
+        List<ExportBatch> batches = List.of(
+                sxssfBatch(0, 1, 5),
+                sxssfBatch(1, 6, 2));
+
+        Path merged = merger.merge(job, batches, TITLE);
+
+        try (XSSFWorkbook workbook = open(merged)) {
+            assertEquals(3, workbook.getNumberOfSheets());
+            assertEquals(List.of("Payroll", "Payroll (2)", "Payroll (3)"),
+                    List.of(workbook.getSheetName(0), workbook.getSheetName(1), workbook.getSheetName(2)));
+            int expected = 1;
+            for (int s = 0; s < workbook.getNumberOfSheets(); s++) {
+                XSSFSheet sheet = workbook.getSheetAt(s);
+                assertEquals(TITLE, sheet.getRow(0).getCell(0).getStringCellValue());
+                assertEquals("A1:B1", sheet.getMergedRegion(0).formatAsString());
+                for (int r = 2; r <= sheet.getLastRowNum(); r++) {
+                    assertEquals(expected, (int) sheet.getRow(r).getCell(0).getNumericCellValue());
+                    assertEquals("Employee " + expected++, sheet.getRow(r).getCell(1).getStringCellValue());
+                }
+            }
+            assertEquals(8, expected);
+
+            CTProperties app = workbook.getProperties().getExtendedProperties().getUnderlyingProperties();
+            assertEquals(3, app.getHeadingPairs().getVector().getVariantArray(1).getI4());
+            assertArrayEquals(new String[]{"Payroll", "Payroll (2)", "Payroll (3)"},
+                    app.getTitlesOfParts().getVector().getLpstrArray());
+        }
+    }
+
+    @Test
+    void mergesStreamingBatches() throws IOException {
+        List<ExportBatch> batches = List.of(streamingBatch(0, 1, 3), streamingBatch(1, 4, 3));
+
+        try (XSSFWorkbook workbook = open(merger.merge(job, batches, TITLE))) {
+            assertEquals(2, workbook.getNumberOfSheets());
+            assertEquals(6, (int) workbook.getSheetAt(1).getRow(4).getCell(0).getNumericCellValue());
+        }
+    }
+
+    @Test
+    void carriesOverLocalNamesAndExternalLinks() throws IOException {
+        Consumer<SXSSFWorkbook> printTitlesAndLink = workbook -> {
+            SXSSFSheet sheet = workbook.getSheetAt(0);
+            sheet.setRepeatingRows(CellRangeAddress.valueOf("2:2"));
+            Hyperlink link = workbook.getCreationHelper().createHyperlink(HyperlinkType.URL);
+            link.setAddress("https://example.com/employees");
+            sheet.getRow(2).getCell(1).setHyperlink(link);
+        };
+        List<ExportBatch> batches = List.of(
+                workbookBatch(0, 1, printTitlesAndLink),
+                workbookBatch(1, 2, printTitlesAndLink));
+
+        try (XSSFWorkbook workbook = open(merger.merge(job, batches, TITLE))) {
+            assertEquals(2, workbook.getNumberOfNames());
+            for (int s = 0; s < 2; s++) {
+                Name printTitles = workbook.getNames("_xlnm.Print_Titles").get(s);
+                XSSFSheet sheet = workbook.getSheetAt(printTitles.getSheetIndex());
+                assertEquals("'" + sheet.getSheetName() + "'!$2:$2", printTitles.getRefersToFormula());
+                Cell cell = sheet.getRow(2).getCell(1);
+                assertEquals("https://example.com/employees", cell.getHyperlink().getAddress());
+            }
+        }
+    }
+
+    @Test
+    void failsOnPartsThatCannotBeMerged() throws IOException {
+        List<ExportBatch> batches = List.of(
+                sxssfBatch(0, 1, 2),
+                workbookBatch(1, 3, workbook -> workbook.createCellStyle().setWrapText(true)));
+
+        IOException failure = assertThrows(IOException.class, () -> merger.merge(job, batches, TITLE));
+
+        assertTrue(failure.getMessage().contains("xl/styles.xml"), failure.getMessage());
+        assertFalse(Files.exists(directory.resolve(JOB_ID).resolve(JOB_ID + "_workbook.xlsx.part")));
+    }
+
+    @Test
+    void failsOnConflictingGlobalNames() throws IOException {
+        List<ExportBatch> batches = List.of(
+                workbookBatch(0, 1, workbook -> globalName(workbook, "$A$1")),
+                workbookBatch(1, 2, workbook -> globalName(workbook, "$B$1")));
+
+        IOException failure = assertThrows(IOException.class, () -> merger.merge(job, batches, TITLE));
+
+        assertTrue(failure.getMessage().contains("Defined name Employees"), failure.getMessage());
+    }
+
+    private ExportBatch sxssfBatch(int batchNumber, int firstId, int rows) throws IOException {
+        Path file = batchFile(batchNumber);
+        try (OutputStream out = Files.newOutputStream(file);
+             SxssfBatchFileWriter<Integer> writer = new SxssfBatchFileWriter<>(out, 100, TITLE, COLUMNS,
+                     new SheetLimits(5, 0), false)) {
+            for (int id = firstId; id < firstId + rows; id++) {
+                writer.writeRow(id);
+            }
+        }
+        return ExportBatch.builder().batchNumber(batchNumber).partialFilePath(file.toString()).build();
+    }
+
+    private ExportBatch streamingBatch(int batchNumber, int firstId, int rows) throws IOException {
+        Path file = batchFile(batchNumber);
+        try (OutputStream out = Files.newOutputStream(file);
+             StreamingXlsxBatchFileWriter<Integer> writer = new StreamingXlsxBatchFileWriter<>(out, TITLE, COLUMNS,
+                     new SheetLimits(SheetLimits.XLSX_MAX_ROWS, 0))) {
+            for (int id = firstId; id < firstId + rows; id++) {
+                writer.writeRow(id);
+            }
+        }
+        return ExportBatch.builder().batchNumber(batchNumber).partialFilePath(file.toString()).build();
+    }
+
+    private ExportBatch workbookBatch(int batchNumber, int id, Consumer<SXSSFWorkbook> customizer) throws IOException {
+        Path file = batchFile(batchNumber);
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook();
+             OutputStream out = Files.newOutputStream(file)) {
+            SXSSFSheet sheet = workbook.createSheet(TITLE);
+            sheet.createRow(0).createCell(0).setCellValue(TITLE);
+            sheet.createRow(1).createCell(0).setCellValue("emp_no");
+            sheet.createRow(2).createCell(0).setCellValue(id);
+            sheet.getRow(2).createCell(1).setCellValue("Employee " + id);
+            customizer.accept(workbook);
+            workbook.write(out);
+        }
+        return ExportBatch.builder().batchNumber(batchNumber).partialFilePath(file.toString()).build();
+    }
+
+    private static void globalName(SXSSFWorkbook workbook, String reference) {
+        Name name = workbook.createName();
+        name.setNameName("Employees");
+        name.setRefersToFormula("'" + TITLE + "'!" + reference);
+    }
+
+    private Path batchFile(int batchNumber) {
+        return directory.resolve(JOB_ID).resolve(JOB_ID + "_batch_" + batchNumber + ".xlsx");
+    }
+
+    private static XSSFWorkbook open(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new XSSFWorkbook(in);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.aps.export_data_v2.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ZipArchiveReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsAndCopiesEntriesWrittenByJavaUtilZip() throws IOException {
+        byte[] csv = "emp_no,salary\r\n10001,60117\r\n".repeat(1_000).getBytes(StandardCharsets.UTF_8);
+        byte[] manifest = "Bảng lương".getBytes(StandardCharsets.UTF_8);
+        Path archive = directory.resolve("source.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("batch_1.csv"));
+            out.write(csv);
+            ZipEntry stored = new ZipEntry("bảng lương.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(manifest.length);
+            stored.setCrc(crc32(manifest));
+            out.putNextEntry(stored);
+            out.write(manifest);
+        }
+
+        Path copy = directory.resolve("copy.zip");
+        try (ZipArchiveReader reader = ZipArchiveReader.open(archive);
+             ZipArchiveWriter writer = ZipArchiveWriter.create(copy)) {
+            assertEquals(2, reader.getEntries().size());
+            assertArrayEquals(csv, reader.read(reader.getEntry("batch_1.csv")));
+            assertArrayEquals(manifest, reader.read(reader.getEntry("bảng lương.txt")));
+            assertNull(reader.getEntry("missing.csv"));
+
+            for (ZipArchiveReader.Entry entry : reader.getEntries()) {
+                reader.copyTo(writer, entry, "copied/" + entry.name());
+            }
+        }
+
+        try (ZipFile zip = new ZipFile(copy.toFile())) {
+            assertArrayEquals(csv, read(zip, "copied/batch_1.csv"));
+            assertArrayEquals(manifest, read(zip, "copied/bảng lương.txt"));
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("copied/batch_1.csv").getMethod());
+        }
+    }
+
+    @Test
+    void readsZip64EndRecord() throws IOException {
+        int count = 70_000;
+        Path archive = directory.resolve("many.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (int i = 0; i < count; i++) {
+                out.putNextEntry(new ZipEntry("batch_" + i + ".csv"));
+                out.write(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        try (ZipArchiveReader reader = ZipArchiveReader.open(archive)) {
+            assertEquals(count, reader.getEntries().size());
+            assertEquals("69999", new String(reader.read(reader.getEntry("batch_69999.csv")), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void rejectsFilesWithoutCentralDirectory() throws IOException {
+        Path archive = Files.writeString(directory.resolve("broken.zip"), "not a zip archive");
+
+        assertThrows(IOException.class, () -> ZipArchiveReader.open(archive));
+    }
+
+    private static long crc32(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+}
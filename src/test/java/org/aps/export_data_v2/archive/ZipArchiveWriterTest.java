@@ -0,0 +1,80 @@
+package org.aps.export_data_v2.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ZipArchiveWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storedAndDeflatedEntriesRoundTrip() throws IOException {
+        byte[] csv = "id,name\n1,Nguyễn Văn A\n".repeat(2_000).getBytes(StandardCharsets.UTF_8);
+        Path source = Files.write(directory.resolve("batch.csv"), csv);
+        Path archive = directory.resolve("export.zip");
+
+        try (ZipArchiveWriter writer = ZipArchiveWriter.create(archive)) {
+            writer.addStored("manifest.txt", "2 entries".getBytes(StandardCharsets.UTF_8));
+            writer.addDeflated("batch_1.csv", source);
+            writer.addStored("batch_2.csv", source);
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(3, zip.size());
+            assertEquals("2 entries", new String(read(zip, "manifest.txt"), StandardCharsets.UTF_8));
+            assertArrayEquals(csv, read(zip, "batch_1.csv"));
+            assertArrayEquals(csv, read(zip, "batch_2.csv"));
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("batch_1.csv").getMethod());
+            assertEquals(ZipEntry.STORED, zip.getEntry("batch_2.csv").getMethod());
+        }
+
+        // Streaming readers only see local headers and data descriptors
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(archive))) {
+            assertEquals("manifest.txt", in.getNextEntry().getName());
+            assertEquals("batch_1.csv", in.getNextEntry().getName());
+            assertArrayEquals(csv, in.readAllBytes());
+            assertEquals("batch_2.csv", in.getNextEntry().getName());
+            assertArrayEquals(csv, in.readAllBytes());
+            assertNull(in.getNextEntry());
+        }
+    }
+
+    @Test
+    void moreThan65535EntriesUseZip64EndRecord() throws IOException {
+        int count = 70_000;
+        Path archive = directory.resolve("many.zip");
+
+        try (ZipArchiveWriter writer = ZipArchiveWriter.create(archive)) {
+            for (int i = 0; i < count; i++) {
+                writer.addStored("batch_" + i + ".csv", Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(count, zip.size());
+            assertEquals("0", new String(read(zip, "batch_0.csv"), StandardCharsets.UTF_8));
+            assertEquals("65535", new String(read(zip, "batch_65535.csv"), StandardCharsets.UTF_8));
+            assertEquals("69999", new String(read(zip, "batch_69999.csv"), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+}
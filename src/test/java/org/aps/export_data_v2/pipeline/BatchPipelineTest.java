@@ -0,0 +1,142 @@
+package org.aps.export_data_v2.pipeline;
+
+import org.aps.export_data_v2.reader.RowCursor;
+import org.aps.export_data_v2.writer.BatchFileWriter;
+import org.aps.export_data_v2.writer.CsvBatchFileWriter;
+import org.aps.export_data_v2.writer.ExportColumn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchPipelineTest {
+    private static final List<ExportColumn<Employee>> COLUMNS = List.of(
+            ExportColumn.integer("id", row -> row.id),
+            ExportColumn.text("name", row -> row.name));
+
+    private final ExecutorService encodingExecutor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        encodingExecutor.shutdownNow();
+    }
+
+    @Test
+    void rowsComeOutInCursorOrder() throws Exception {
+        int rows = 10_007;
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        StageTimings timings = new StageTimings();
+        BatchPipeline<Employee> pipeline = new BatchPipeline<>(Employee::new, 100, 3, encodingExecutor);
+
+        int written;
+        try (CountingCursor cursor = new CountingCursor(rows);
+             ChunkedOutputStream out = new ChunkedOutputStream(target, 256, 3, timings)) {
+            written = pipeline.run(cursor, new CsvBatchFileWriter<>(out, COLUMNS), timings);
+        }
+
+        assertEquals(rows, written);
+        String[] lines = target.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(rows + 1, lines.length);
+        assertEquals("id,name", lines[0]);
+        for (int i = 1; i <= rows; i++) {
+            assertEquals(i + ",Employee " + i, lines[i]);
+        }
+    }
+
+    @Test
+    void encoderFailureIsRethrownAndWriterClosed() {
+        BatchPipeline<Employee> pipeline = new BatchPipeline<>(Employee::new, 16, 2, encodingExecutor);
+        FailingWriter writer = new FailingWriter(50);
+
+        IOException failure = assertThrows(IOException.class,
+                () -> pipeline.run(new CountingCursor(1_000), writer, new StageTimings()));
+
+        assertEquals("Disk full", failure.getMessage());
+        assertTrue(writer.closed);
+    }
+
+    @Test
+    void targetFailureSurfacesOnClose() {
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException failure = assertThrows(IOException.class, () -> {
+            try (ChunkedOutputStream out = new ChunkedOutputStream(broken, 8, 2, new StageTimings())) {
+                out.write("more than one buffer".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        assertEquals("Broken pipe", failure.getMessage());
+    }
+
+    private static final class Employee {
+        private int id;
+        private String name;
+    }
+
+    private static final class CountingCursor implements RowCursor<Employee> {
+        private final int rows;
+        private int current;
+
+        private CountingCursor(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean next(Employee row) {
+            if (current == rows) {
+                return false;
+            }
+            current++;
+            row.id = current;
+            row.name = "Employee " + current;
+            return true;
+        }
+
+        @Override
+        public void close() throws SQLException {
+        }
+    }
+
+    private static final class FailingWriter implements BatchFileWriter<Employee> {
+        private final int failAt;
+        private int rowCount;
+        private boolean closed;
+
+        private FailingWriter(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void writeRow(Employee row) throws IOException {
+            if (++rowCount == failAt) {
+                throw new IOException("Disk full");
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
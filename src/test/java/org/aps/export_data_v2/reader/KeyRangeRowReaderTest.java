@@ -0,0 +1,85 @@
+package org.aps.export_data_v2.reader;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class KeyRangeRowReaderTest {
+    private static final List<String> COLUMNS = List.of("emp_no", "salary", "from_date", "to_date");
+
+    private static final List<List<String>> ROWS = List.of(
+            List.of("10001", "60117", "1986-06-26", "1987-06-26"),
+            List.of("10002", "65828", "1996-08-03", "1997-08-03"));
+
+    private static final List<List<String>> SWAPPED = List.of(
+            List.of("10001", "65828", "1986-06-26", "1987-06-26"),
+            List.of("10002", "60117", "1996-08-03", "1997-08-03"));
+
+    @Test
+    void rowHashExpressionQuotesEveryColumn() {
+        assertEquals("CAST(CONV(LEFT(MD5(CONCAT_WS(',', QUOTE(emp_no), QUOTE(salary))), 16), 16, 10) AS UNSIGNED)",
+                KeyRangeRowReader.rowHashExpression(List.of("emp_no", "salary")));
+    }
+
+    @Test
+    void crcXorCannotSeeSwappedValues() {
+        long original = 0;
+        long swapped = 0;
+        for (int i = 0; i < ROWS.size(); i++) {
+            original ^= crc32(String.join(",", ROWS.get(i)));
+            swapped ^= crc32(String.join(",", SWAPPED.get(i)));
+        }
+        assertEquals(original, swapped);
+    }
+
+    @Test
+    void swappedValuesChangeFingerprint() throws NoSuchAlgorithmException {
+        assertNotEquals(fingerprint(ROWS), fingerprint(SWAPPED));
+    }
+
+    @Test
+    void fingerprintIgnoresRowOrder() throws NoSuchAlgorithmException {
+        assertEquals(fingerprint(ROWS), fingerprint(ROWS.reversed()));
+    }
+
+    @Test
+    void fingerprintSeparatesValuesContainingSeparator() throws NoSuchAlgorithmException {
+        assertNotEquals(fingerprint(List.of(List.of("1", "a,b", "c"))), fingerprint(List.of(List.of("1", "a", "b,c"))));
+    }
+
+    // Evaluates rowHashExpression the way MySQL does: SUM and BIT_XOR over the unsigned value of the first
+    // 16 hex digits of MD5(CONCAT_WS(',', QUOTE(column), ...)).
+    private static String fingerprint(List<List<String>> rows) throws NoSuchAlgorithmException {
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        BigInteger sum = BigInteger.ZERO;
+        BigInteger xor = BigInteger.ZERO;
+        for (List<String> row : rows) {
+            String serialized = String.join(",", row.stream().map(KeyRangeRowReaderTest::quote).toList());
+            String digest = HexFormat.of().formatHex(md5.digest(serialized.getBytes(StandardCharsets.UTF_8)));
+            BigInteger hash = new BigInteger(digest.substring(0, 16), 16);
+            sum = sum.add(hash);
+            xor = xor.xor(hash);
+        }
+        return KeyRangeRowReader.fingerprint(rows.size(), new BigDecimal(sum), new BigDecimal(xor), COLUMNS);
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private static long crc32(String value) {
+        CRC32 crc = new CRC32();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,156 @@
+package org.aps.export_data_v2.reader;
+
+import org.aps.export_data_v2.entity.Salary;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.RowSetMetaData;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SalaryRowReaderTest {
+    private static final LocalDate FROM_DATE = LocalDate.of(1986, 6, 26);
+
+    private final SalaryRowReader reader = new SalaryRowReader(null, null, null);
+
+    @Test
+    void mapsProjectedColumnsIntoReusedRow() throws SQLException {
+        CachedRowSet rows = projectedRows(2);
+        SalaryRow row = reader.newRow();
+
+        rows.next();
+        reader.mapper().map(rows, row);
+        rows.next();
+        reader.mapper().map(rows, row);
+
+        assertEquals(10_001, row.getEmpNo());
+        assertEquals(60_001, row.getSalary());
+        assertEquals(FROM_DATE.toEpochDay() + 1, row.getFromDateEpochDay());
+        assertEquals(FROM_DATE.toEpochDay() + 366, row.getToDateEpochDay());
+    }
+
+    // Compares the projection mapper with building a Salary entity per row, the way the removed
+    // findAllByOffsetRange path did. Allocation is reported net of a scan that reads the same columns through
+    // the same getters, so the in-memory row set's own conversions cancel out. Hibernate's hydration and
+    // persistence-context cost comes on top of the entity figures, so they are a lower bound.
+    // Run with: mvn test -Dtest=SalaryRowReaderTest -Dsurefire.excludedGroups= -Dgroups=benchmark
+    @Test
+    @Tag("benchmark")
+    void benchmarkProjectionAgainstEntities() throws SQLException {
+        int rows = 500_000;
+        CachedRowSet projected = projectedRows(rows);
+        CachedRowSet dated = datedRows(rows);
+        for (int round = 0; round < 5; round++) {
+            report("projection", rows, measure(() -> scanProjected(projected)), measure(() -> readProjected(projected)));
+            report("entity", rows, measure(() -> scanDated(dated)), measure(() -> readEntities(dated)));
+        }
+    }
+
+    private long readProjected(CachedRowSet rows) throws SQLException {
+        rows.beforeFirst();
+        SalaryRow row = reader.newRow();
+        long sum = 0;
+        while (rows.next()) {
+            reader.mapper().map(rows, row);
+            sum += row.getSalary() + row.getFromDateEpochDay();
+        }
+        return sum;
+    }
+
+    private static long scanProjected(CachedRowSet rows) throws SQLException {
+        rows.beforeFirst();
+        long sum = 0;
+        while (rows.next()) {
+            sum += rows.getInt(1) + rows.getInt(2) + rows.getInt(3) + rows.getInt(4);
+        }
+        return sum;
+    }
+
+    private static long readEntities(CachedRowSet rows) throws SQLException {
+        rows.beforeFirst();
+        long sum = 0;
+        while (rows.next()) {
+            Salary salary = new Salary(rows.getInt(1), rows.getInt(2),
+                    new java.util.Date(rows.getDate(3).getTime()), new java.util.Date(rows.getDate(4).getTime()));
+            sum += salary.getSalary() + salary.getFromDate().getTime() / TimeUnit.DAYS.toMillis(1);
+        }
+        return sum;
+    }
+
+    private static long scanDated(CachedRowSet rows) throws SQLException {
+        rows.beforeFirst();
+        long sum = 0;
+        while (rows.next()) {
+            sum += rows.getInt(1) + rows.getInt(2) + rows.getDate(3).getTime() + rows.getDate(4).getTime();
+        }
+        return sum;
+    }
+
+    private static long[] measure(Read read) throws SQLException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        read.run();
+        long elapsed = System.nanoTime() - start;
+        return new long[]{elapsed, threads.getCurrentThreadAllocatedBytes() - allocated};
+    }
+
+    private static void report(String path, int rows, long[] scan, long[] read) {
+        System.out.printf("%-10s %d ms, %d rows/s, %d bytes/row over the scan%n", path,
+                TimeUnit.NANOSECONDS.toMillis(read[0]), rows * 1_000_000_000L / read[0], (read[1] - scan[1]) / rows);
+    }
+
+    private static CachedRowSet projectedRows(int count) throws SQLException {
+        CachedRowSet rows = rowSet(Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER);
+        for (int i = 0; i < count; i++) {
+            rows.moveToInsertRow();
+            rows.updateInt(1, 10_000 + i);
+            rows.updateInt(2, 60_000 + i);
+            rows.updateInt(3, (int) FROM_DATE.toEpochDay() + i);
+            rows.updateInt(4, (int) FROM_DATE.toEpochDay() + i + 365);
+            rows.insertRow();
+        }
+        rows.moveToCurrentRow();
+        rows.beforeFirst();
+        return rows;
+    }
+
+    private static CachedRowSet datedRows(int count) throws SQLException {
+        CachedRowSet rows = rowSet(Types.INTEGER, Types.INTEGER, Types.DATE, Types.DATE);
+        for (int i = 0; i < count; i++) {
+            rows.moveToInsertRow();
+            rows.updateInt(1, 10_000 + i);
+            rows.updateInt(2, 60_000 + i);
+            rows.updateDate(3, Date.valueOf(FROM_DATE.plusDays(i)));
+            rows.updateDate(4, Date.valueOf(FROM_DATE.plusDays(i + 365)));
+            rows.insertRow();
+        }
+        rows.moveToCurrentRow();
+        rows.beforeFirst();
+        return rows;
+    }
+
+    private static CachedRowSet rowSet(int... types) throws SQLException {
+        RowSetMetaData metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(types.length);
+        for (int i = 0; i < types.length; i++) {
+            metaData.setColumnType(i + 1, types[i]);
+        }
+        CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+        rows.setMetaData(metaData);
+        return rows;
+    }
+
+    private interface Read {
+        long run() throws SQLException;
+    }
+}
@@ -0,0 +1,154 @@
+package org.aps.export_data_v2.reader;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedRowCursorTest {
+    private static final int CHUNK_SIZE = 64;
+
+    @Test
+    void readsShardsInKeyOrder() throws SQLException {
+        List<RowCursor<int[]>> cursors = List.of(new RangeCursor(0, 1000, 0), new RangeCursor(1000, 1500, 0),
+                new RangeCursor(1500, 4000, 0));
+        AtomicBoolean released = new AtomicBoolean();
+        int[] row = new int[1];
+        int expected = 0;
+        try (ShardedRowCursor<int[]> cursor = new ShardedRowCursor<>(cursors, () -> new int[1],
+                (target, source) -> target[0] = source[0], CHUNK_SIZE, 8, () -> released.set(true))) {
+            while (cursor.next(row)) {
+                assertEquals(expected++, row[0]);
+            }
+        }
+        assertEquals(4000, expected);
+        assertTrue(released.get());
+    }
+
+    @Test
+    @Timeout(10)
+    void closeCancelsBlockedShardsWithoutInterrupting() throws Exception {
+        BlockingCursor blocked = new BlockingCursor();
+        List<RowCursor<int[]>> cursors = List.of(new RangeCursor(0, 10, 0), blocked);
+        ShardedRowCursor<int[]> cursor = new ShardedRowCursor<>(cursors, () -> new int[1],
+                (target, source) -> target[0] = source[0], CHUNK_SIZE, 8, () -> { });
+        assertTrue(blocked.reading.await(5, TimeUnit.SECONDS));
+
+        cursor.close();
+
+        assertTrue(blocked.cancelled.get());
+        assertFalse(blocked.interrupted.get());
+        assertTrue(blocked.closed.get());
+    }
+
+    // Simulates a network-bound read where every chunk of rows costs a round trip, which is what sharding
+    // overlaps. Run with: mvn test -Dtest=ShardedRowCursorTest -Dsurefire.excludedGroups= -Dgroups=benchmark
+    @Test
+    @Tag("benchmark")
+    void benchmarkShardCounts() throws SQLException {
+        int rows = 400_000;
+        long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(200);
+        long singleShard = 0;
+        for (int shards : new int[]{1, 2, 4, 8}) {
+            long elapsed = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                elapsed = Math.min(elapsed, readAll(rows, shards, roundTripNanos));
+            }
+            singleShard = shards == 1 ? elapsed : singleShard;
+            System.out.printf("%d shard(s): %d ms, %d rows/s, %.2fx%n", shards,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), rows * 1_000_000_000L / elapsed,
+                    (double) singleShard / elapsed);
+        }
+    }
+
+    private static long readAll(int rows, int shards, long roundTripNanos) throws SQLException {
+        List<RowCursor<int[]>> cursors = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            cursors.add(new RangeCursor(rows * i / shards, rows * (i + 1) / shards, roundTripNanos));
+        }
+        long start = System.nanoTime();
+        int[] row = new int[1];
+        long sum = 0;
+        try (ShardedRowCursor<int[]> cursor = new ShardedRowCursor<>(cursors, () -> new int[1],
+                (target, source) -> target[0] = source[0], CHUNK_SIZE * 64, 256, () -> { })) {
+            while (cursor.next(row)) {
+                sum += row[0];
+            }
+        }
+        assertEquals((long) rows * (rows - 1) / 2, sum);
+        return System.nanoTime() - start;
+    }
+
+    private static final class RangeCursor implements RowCursor<int[]> {
+        private static final int ROWS_PER_ROUND_TRIP = 1000;
+
+        private final int end;
+        private final long roundTripNanos;
+        private int next;
+
+        private RangeCursor(int start, int end, long roundTripNanos) {
+            this.next = start;
+            this.end = end;
+            this.roundTripNanos = roundTripNanos;
+        }
+
+        @Override
+        public boolean next(int[] row) {
+            if (next == end) {
+                return false;
+            }
+            if (roundTripNanos > 0 && next % ROWS_PER_ROUND_TRIP == 0) {
+                LockSupport.parkNanos(roundTripNanos);
+            }
+            row[0] = next++;
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class BlockingCursor implements RowCursor<int[]> {
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean interrupted = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        @Override
+        public boolean next(int[] row) throws SQLException {
+            reading.countDown();
+            while (true) {
+                try {
+                    released.await();
+                    throw new SQLException("Query execution was interrupted");
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled.set(true);
+            released.countDown();
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
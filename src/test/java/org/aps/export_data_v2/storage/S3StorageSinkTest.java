@@ -0,0 +1,309 @@
+package org.aps.export_data_v2.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.aps.export_data_v2.archive.ExportArchiveAssembler;
+import org.aps.export_data_v2.archive.ZipArchiveWriter;
+import org.aps.export_data_v2.constant.ExportFormat;
+import org.aps.export_data_v2.entity.ExportBatch;
+import org.aps.export_data_v2.entity.ExportJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3StorageSinkTest {
+    private static final String BUCKET = "exports";
+    private static final int MIN_PART_SIZE = 64 * 1024;
+    private static final int PART_SIZE = 128 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private ObjectStoreStandIn store;
+    private ExecutorService uploadExecutor;
+    private S3StorageSink sink;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new ObjectStoreStandIn();
+        uploadExecutor = Executors.newFixedThreadPool(4);
+        S3Client client = new S3Client(store.endpoint(), "us-east-1", BUCKET, "test-key", "test-secret");
+        sink = new S3StorageSink(client, "exports/", PART_SIZE, MIN_PART_SIZE, Duration.ofMinutes(5), uploadExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        try {
+            sink.close();
+            store.stop();
+        } finally {
+            awaitShutdown(uploadExecutor);
+        }
+    }
+
+    @Test
+    void composesStoredArchiveFromUploadedBatchEntries() throws IOException {
+        assertArchiveRoundTrip(ExportFormat.EXCEL);
+    }
+
+    @Test
+    void composesDeflatedArchiveFromUploadedBatchEntries() throws IOException {
+        assertArchiveRoundTrip(ExportFormat.CSV);
+    }
+
+    @Test
+    void uploadsLargeResultFileInParallelParts() throws IOException {
+        ExportJob job = job(ExportFormat.EXCEL);
+        Path result = directory.resolve(job.getJobUniqueId() + "_workbook.xlsx");
+        byte[] content = randomBytes(PART_SIZE * 2 + 1000, 7);
+        Files.write(result, content);
+
+        String storageUrl = sink.publish(job, result, List.of());
+
+        assertEquals("s3://" + BUCKET + "/exports/" + job.getJobUniqueId() + "/" + result.getFileName(), storageUrl);
+        assertEquals(3, store.uploadedParts.get());
+        assertArrayEquals(content, read(storageUrl));
+    }
+
+    @Test
+    void presignsDownloadUri() {
+        URI uri = sink.downloadUri("s3://" + BUCKET + "/exports/job/job_final.zip", "export_job.zip");
+
+        assertTrue(uri.toString().startsWith(store.endpoint() + "/" + BUCKET + "/exports/job/job_final.zip?"));
+        assertTrue(uri.getQuery().contains("X-Amz-Signature="));
+        assertTrue(uri.getQuery().contains("response-content-disposition=attachment"));
+    }
+
+    private void assertArchiveRoundTrip(ExportFormat format) throws IOException {
+        ExportJob job = job(format);
+        int[] sizes = {200 * 1024, 10 * 1024, 150 * 1024, 5 * 1024, 300 * 1024, 90 * 1024};
+        List<ExportBatch> batches = new ArrayList<>();
+        Map<String, byte[]> contents = new HashMap<>();
+        for (int i = 0; i < sizes.length; i++) {
+            String name = job.getJobUniqueId() + "_batch_" + i + "." + format.getFileExtension();
+            byte[] content = randomBytes(sizes[i], i);
+            Files.write(directory.resolve(name), content);
+            contents.put(name, content);
+            ExportBatch batch = ExportBatch.builder()
+                    .exportJob(job)
+                    .batchNumber(i)
+                    .partialFilePath(directory.resolve(name).toString())
+                    .build();
+            batch.setArchivePart(sink.uploadBatch(job, batch));
+            batches.add(batch);
+        }
+        assertNotNull(batches.get(0).getArchivePart());
+        assertNull(batches.get(1).getArchivePart());
+
+        Path archive = directory.resolve(job.getJobUniqueId() + "_final.zip");
+        try (ZipArchiveWriter writer = ZipArchiveWriter.create(archive)) {
+            for (ExportBatch batch : batches) {
+                ExportArchiveAssembler.addBatch(writer, format, batch);
+            }
+        }
+
+        String storageUrl = sink.publish(job, archive, batches);
+
+        assertTrue(store.copiedParts.get() > 0);
+        assertEquals(1, store.objects.size());
+        Path downloaded = directory.resolve("downloaded.zip");
+        Files.write(downloaded, read(storageUrl));
+        try (ZipFile zipFile = new ZipFile(downloaded.toFile())) {
+            assertEquals(sizes.length, zipFile.size());
+            for (Map.Entry<String, byte[]> expected : contents.entrySet()) {
+                ZipEntry entry = zipFile.getEntry(expected.getKey());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(expected.getValue(), in.readAllBytes());
+                }
+            }
+        }
+        assertTrue(Files.list(directory).noneMatch(file -> file.toString().contains(".upload")));
+    }
+
+    private byte[] read(String storageUrl) throws IOException {
+        try (StoredObject object = sink.open(storageUrl)) {
+            byte[] content = object.content().readAllBytes();
+            assertEquals(object.length(), content.length);
+            return content;
+        }
+    }
+
+    private static ExportJob job(ExportFormat format) {
+        return ExportJob.builder()
+                .jobUniqueId(UUID.randomUUID().toString())
+                .exportFormat(format)
+                .build();
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static void awaitShutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static final class ObjectStoreStandIn {
+        private final HttpServer server;
+        private final ExecutorService serverExecutor = Executors.newFixedThreadPool(8);
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+        private final AtomicInteger uploadedParts = new AtomicInteger();
+        private final AtomicInteger copiedParts = new AtomicInteger();
+
+        private ObjectStoreStandIn() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", this::handle);
+            server.setExecutor(serverExecutor);
+            server.start();
+        }
+
+        private String endpoint() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        private void stop() throws InterruptedException {
+            try {
+                server.stop(0);
+            } finally {
+                awaitShutdown(serverExecutor);
+            }
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                if (authorization == null || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=test-key/")) {
+                    respond(exchange, 403, "<Error><Code>AccessDenied</Code></Error>");
+                    return;
+                }
+                String key = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8)
+                        .substring(BUCKET.length() + 2);
+                Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+                byte[] body = exchange.getRequestBody().readAllBytes();
+
+                switch (exchange.getRequestMethod()) {
+                    case "POST" -> {
+                        if (query.containsKey("uploads")) {
+                            String uploadId = UUID.randomUUID().toString();
+                            uploads.put(uploadId, new TreeMap<>());
+                            respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>" + uploadId
+                                    + "</UploadId></InitiateMultipartUploadResult>");
+                        } else {
+                            complete(exchange, key, query.get("uploadId"));
+                        }
+                    }
+                    case "PUT" -> {
+                        if (!query.containsKey("partNumber")) {
+                            objects.put(key, body);
+                            respond(exchange, 200, "");
+                            return;
+                        }
+                        Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+                        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+                        if (copySource != null) {
+                            byte[] source = objects.get(URLDecoder.decode(copySource, StandardCharsets.UTF_8)
+                                    .substring(BUCKET.length() + 2));
+                            parts.put(Integer.parseInt(query.get("partNumber")), source);
+                            copiedParts.incrementAndGet();
+                            respond(exchange, 200, "<CopyPartResult><ETag>&quot;copy-" + query.get("partNumber")
+                                    + "&quot;</ETag></CopyPartResult>");
+                        } else {
+                            parts.put(Integer.parseInt(query.get("partNumber")), body);
+                            uploadedParts.incrementAndGet();
+                            exchange.getResponseHeaders().add("ETag", "\"part-" + query.get("partNumber") + "\"");
+                            respond(exchange, 200, "");
+                        }
+                    }
+                    case "GET" -> {
+                        byte[] object = objects.get(key);
+                        if (object == null) {
+                            respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                            return;
+                        }
+                        exchange.sendResponseHeaders(200, object.length);
+                        exchange.getResponseBody().write(object);
+                    }
+                    case "DELETE" -> {
+                        if (query.containsKey("uploadId")) {
+                            uploads.remove(query.get("uploadId"));
+                        } else {
+                            objects.remove(key);
+                        }
+                        exchange.sendResponseHeaders(204, -1);
+                    }
+                    default -> respond(exchange, 405, "");
+                }
+            }
+        }
+
+        private void complete(HttpExchange exchange, String key, String uploadId) throws IOException {
+            List<byte[]> parts = new ArrayList<>(uploads.remove(uploadId).values());
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            for (int i = 0; i < parts.size(); i++) {
+                if (i < parts.size() - 1 && parts.get(i).length < MIN_PART_SIZE) {
+                    respond(exchange, 400, "<Error><Code>EntityTooSmall</Code></Error>");
+                    return;
+                }
+                object.write(parts.get(i));
+            }
+            objects.put(key, object.toByteArray());
+            respond(exchange, 200, "<CompleteMultipartUploadResult><Key>" + key + "</Key></CompleteMultipartUploadResult>");
+        }
+
+        private static Map<String, String> query(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery != null) {
+                for (String parameter : rawQuery.split("&")) {
+                    String[] pair = parameter.split("=", 2);
+                    query.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8),
+                            pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : "");
+                }
+            }
+            return query;
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                exchange.getResponseBody().write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.aps.export_data_v2.writer;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ParquetBatchFileWriterTest {
+    private static final List<ExportColumn<Salary>> COLUMNS = List.of(
+            ExportColumn.integer("emp_no", Salary::empNo),
+            ExportColumn.date("from_date", Salary::fromEpochDay),
+            ExportColumn.numeric("amount", Salary::amount),
+            ExportColumn.text("title", Salary::title));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void schemaAndValuesReadBackWithParquetMr() throws IOException {
+        Path file = write(1000);
+
+        ParquetMetadata metadata = readFooter(file);
+        MessageType schema = metadata.getFileMetaData().getSchema();
+        assertEquals(4, schema.getFieldCount());
+        assertColumn(schema.getType(0), "emp_no", PrimitiveTypeName.INT32, null);
+        assertColumn(schema.getType(1), "from_date", PrimitiveTypeName.INT32, LogicalTypeAnnotation.dateType());
+        assertColumn(schema.getType(2), "amount", PrimitiveTypeName.DOUBLE, null);
+        assertColumn(schema.getType(3), "title", PrimitiveTypeName.BINARY, LogicalTypeAnnotation.stringType());
+        assertEquals(1000, metadata.getBlocks().get(0).getRowCount());
+
+        assertEquals(1000, readAll(file));
+    }
+
+    @Test
+    void splitsLargeBatchesIntoRowGroups() throws IOException {
+        int rows = 300_000;
+        Path file = write(rows);
+
+        ParquetMetadata metadata = readFooter(file);
+        assertEquals(3, metadata.getBlocks().size());
+        assertEquals(rows, metadata.getBlocks().stream().mapToLong(block -> block.getRowCount()).sum());
+        assertEquals(rows, readAll(file));
+    }
+
+    private Path write(int rows) throws IOException {
+        Path file = directory.resolve("batch.parquet");
+        try (OutputStream out = Files.newOutputStream(file);
+             ParquetBatchFileWriter<Salary> writer = new ParquetBatchFileWriter<>(out, COLUMNS)) {
+            for (int i = 0; i < rows; i++) {
+                writer.writeRow(salary(i));
+            }
+            assertEquals(rows, writer.getRowCount());
+        }
+        return file;
+    }
+
+    private static int readAll(Path file) throws IOException {
+        int read = 0;
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(),
+                new org.apache.hadoop.fs.Path(file.toUri())).withConf(new Configuration()).build()) {
+            for (Group group = reader.read(); group != null; group = reader.read()) {
+                Salary expected = salary(read++);
+                assertEquals(expected.empNo(), group.getInteger("emp_no", 0));
+                assertEquals(expected.fromEpochDay(), group.getInteger("from_date", 0));
+                assertEquals(expected.amount(), group.getDouble("amount", 0));
+                assertEquals(expected.title() != null ? expected.title() : "", group.getString("title", 0));
+            }
+        }
+        return read;
+    }
+
+    private static ParquetMetadata readFooter(Path file) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(
+                new org.apache.hadoop.fs.Path(file.toUri()), new Configuration()))) {
+            return reader.getFooter();
+        }
+    }
+
+    private static void assertColumn(Type type, String name, PrimitiveTypeName primitiveType,
+                                     LogicalTypeAnnotation logicalType) {
+        assertEquals(name, type.getName());
+        assertEquals(Type.Repetition.REQUIRED, type.getRepetition());
+        assertEquals(primitiveType, type.asPrimitiveType().getPrimitiveTypeName());
+        if (logicalType == null) {
+            assertNull(type.getLogicalTypeAnnotation());
+        } else {
+            assertEquals(logicalType, type.getLogicalTypeAnnotation());
+        }
+    }
+
+    private static Salary salary(int i) {
+        String title = switch (i % 4) {
+            case 0 -> "Engineer";
+            case 1 -> "Senior Staff – Kỹ sư";
+            case 2 -> "";
+            default -> null;
+        };
+        return new Salary(10001 + i, 5000 + i % 9000, i * 0.5 - 100, title);
+    }
+
+    private record Salary(int empNo, int fromEpochDay, double amount, String title) {
+    }
+}
@@ -0,0 +1,97 @@
+package org.aps.export_data_v2.writer;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingXlsxBatchFileWriterTest {
+    private static final String TITLE = "Payroll: 2024/Q1";
+
+    private static final List<ExportColumn<Employee>> COLUMNS = List.of(
+            ExportColumn.integer("Employee ID", Employee::id),
+            ExportColumn.date("Hire Date", Employee::hireEpochDay),
+            ExportColumn.numeric("Bonus", Employee::bonus),
+            ExportColumn.text("Name", Employee::name));
+
+    private static final List<Employee> EMPLOYEES = List.of(
+            new Employee(10001, LocalDate.of(1986, 6, 26), 1250.5, "Georgi Facello"),
+            new Employee(10002, LocalDate.of(1985, 11, 21), -3.25, "Bezalel <Simmel> & Co"),
+            new Employee(10003, LocalDate.of(1970, 1, 1), 0, "\"Parto\" Bamford"),
+            new Employee(10004, LocalDate.of(2000, 2, 29), 1e9, "Chirstian Koblick"),
+            new Employee(10005, LocalDate.of(1989, 9, 12), 0.1, null));
+
+    @Test
+    void roundTripsThroughPoi() throws IOException {
+        try (XSSFWorkbook workbook = write(new SheetLimits(SheetLimits.XLSX_MAX_ROWS, 0))) {
+            assertEquals(1, workbook.getNumberOfSheets());
+            XSSFSheet sheet = workbook.getSheetAt(0);
+            assertEquals("Payroll  2024 Q1", sheet.getSheetName());
+            assertEquals(TITLE, sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("A1:D1", sheet.getMergedRegion(0).formatAsString());
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                assertEquals(COLUMNS.get(i).getHeader(), sheet.getRow(1).getCell(i).getStringCellValue());
+            }
+            for (int i = 0; i < EMPLOYEES.size(); i++) {
+                assertRow(EMPLOYEES.get(i), sheet.getRow(i + 2));
+            }
+            assertEquals(EMPLOYEES.size() + 1, sheet.getLastRowNum());
+        }
+    }
+
+    @Test
+    void rollsOverToNewSheetsAtRowLimit() throws IOException {
+        try (XSSFWorkbook workbook = write(new SheetLimits(4, 0))) {
+            assertEquals(3, workbook.getNumberOfSheets());
+            assertEquals("Payroll  2024 Q1 (2)", workbook.getSheetName(1));
+            int employee = 0;
+            for (int s = 0; s < workbook.getNumberOfSheets(); s++) {
+                XSSFSheet sheet = workbook.getSheetAt(s);
+                assertEquals(TITLE, sheet.getRow(0).getCell(0).getStringCellValue());
+                for (int r = 2; r <= sheet.getLastRowNum(); r++) {
+                    assertRow(EMPLOYEES.get(employee++), sheet.getRow(r));
+                }
+            }
+            assertEquals(EMPLOYEES.size(), employee);
+        }
+    }
+
+    private static XSSFWorkbook write(SheetLimits limits) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamingXlsxBatchFileWriter<Employee> writer =
+                     new StreamingXlsxBatchFileWriter<>(out, TITLE, COLUMNS, limits)) {
+            for (Employee employee : EMPLOYEES) {
+                writer.writeRow(employee);
+            }
+            assertEquals(EMPLOYEES.size(), writer.getRowCount());
+        }
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertRow(Employee expected, Row row) {
+        assertEquals(expected.id(), row.getCell(0).getNumericCellValue());
+        Cell hireDate = row.getCell(1);
+        assertEquals(expected.hireDate(), hireDate.getLocalDateTimeCellValue().toLocalDate());
+        assertEquals(ExcelSheetWriter.DATE_FORMAT, hireDate.getCellStyle().getDataFormatString());
+        assertTrue(DateUtil.isCellDateFormatted(hireDate));
+        assertEquals(expected.bonus(), row.getCell(2).getNumericCellValue());
+        assertEquals(expected.name() != null ? expected.name() : "", row.getCell(3).getStringCellValue());
+    }
+
+    private record Employee(int id, LocalDate hireDate, double bonus, String name) {
+        int hireEpochDay() {
+            return (int) hireDate.toEpochDay();
+        }
+    }
+}